@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+@Component
+public class FilmCache implements MeterBinder {
+    private final Cache<Integer, Film> cache;
+
+    public FilmCache(@Value("${filmorate.film-cache.maximum-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public Film get(Integer filmId, Function<Integer, Film> loader) {
+        return cache.get(filmId, loader);
+    }
+
+    public boolean contains(Integer filmId) {
+        return cache.asMap().containsKey(filmId);
+    }
+
+    public void invalidate(Integer filmId) {
+        invalidateAll(List.of(filmId));
+    }
+
+    public void invalidateAll(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(filmIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(filmIds);
+                }
+            });
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "films");
+    }
+}
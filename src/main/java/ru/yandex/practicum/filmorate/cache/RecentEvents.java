@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import ru.yandex.practicum.filmorate.model.event.Event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class RecentEvents {
+    private final Event[] events;
+    private int size;
+    private boolean complete;
+
+    RecentEvents(int capacity, Collection<Event> latest) {
+        this.events = new Event[capacity];
+        this.complete = latest.size() < capacity;
+        latest.forEach(this::add);
+    }
+
+    synchronized void add(Event event) {
+        int pos = position(event.getEventId());
+        if (pos < size && events[pos].getEventId().equals(event.getEventId())) {
+            return;
+        }
+        if (size == events.length) {
+            if (pos == 0) {
+                return;
+            }
+            System.arraycopy(events, 1, events, 0, pos - 1);
+            events[pos - 1] = event;
+            complete = false;
+            return;
+        }
+        System.arraycopy(events, pos, events, pos + 1, size - pos);
+        events[pos] = event;
+        size++;
+    }
+
+    public synchronized List<Event> newestBefore(Integer beforeId, int limit) {
+        int end = beforeId == null ? size : position(beforeId);
+        if (end < limit && !complete) {
+            return null;
+        }
+        List<Event> page = new ArrayList<>(Math.min(end, limit));
+        for (int i = end - 1; i >= 0 && page.size() < limit; i--) {
+            page.add(events[i]);
+        }
+        return page;
+    }
+
+    private int position(int eventId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (events[mid].getEventId() < eventId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
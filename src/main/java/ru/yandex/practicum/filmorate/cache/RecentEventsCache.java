@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.event.Event;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+@Component
+public class RecentEventsCache implements MeterBinder {
+    private final Cache<Integer, RecentEvents> cache;
+    private final int capacity;
+
+    public RecentEventsCache(@Value("${filmorate.feed.recent-size:100}") int capacity,
+                             @Value("${filmorate.feed.recent-users:10000}") long maximumUsers) {
+        this.capacity = capacity;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumUsers)
+                .recordStats()
+                .build();
+    }
+
+    public RecentEvents get(Integer userId, BiFunction<Integer, Integer, List<Event>> loader) {
+        return cache.get(userId, id -> new RecentEvents(capacity, loader.apply(id, capacity)));
+    }
+
+    public void append(Event event) {
+        cache.asMap().computeIfPresent(event.getUserId(), (id, events) -> {
+            events.add(event);
+            return events;
+        });
+    }
+
+    public void invalidate(Integer userId) {
+        cache.invalidate(userId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "recentEvents");
+    }
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex.Snapshot;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class RecommendationCache implements MeterBinder {
+    private static final int FORK_THRESHOLD = 64;
+
+    private final RecommendationIndex recommendationIndex;
+    private final long intervalMs;
+    private final int parallelism;
+    private final int coldStartSize;
+
+    private final Cache<Integer, Snapshot> snapshots;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong precomputed = new AtomicLong();
+    private final AtomicInteger runTotal = new AtomicInteger();
+    private final AtomicInteger runDone = new AtomicInteger();
+    private volatile double lastRunSeconds;
+    private volatile double lastRunThroughput;
+    private volatile int[] popularFilmIds;
+    private volatile long popularModifications = -1;
+    private ForkJoinPool pool;
+    private ScheduledExecutorService scheduler;
+
+    public RecommendationCache(RecommendationIndex recommendationIndex,
+                               @Value("${filmorate.recommendations.precompute.interval-ms:600000}") long intervalMs,
+                               @Value("${filmorate.recommendations.precompute.parallelism:0}") int parallelism,
+                               @Value("${filmorate.recommendations.cache.ttl-ms:600000}") long ttlMs,
+                               @Value("${filmorate.recommendations.cache.maximum-size:100000}") long maximumSize,
+                               @Value("${filmorate.recommendations.cold-start-size:10}") int coldStartSize) {
+        this.recommendationIndex = recommendationIndex;
+        this.intervalMs = intervalMs;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.coldStartSize = coldStartSize;
+        this.snapshots = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        pool = new ForkJoinPool(parallelism);
+        if (intervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-precompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                precomputeAll();
+            } catch (RuntimeException e) {
+                log.error("Ошибка предварительного расчёта рекомендаций", e);
+            }
+        }, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        pool.shutdownNow();
+    }
+
+    public int[] get(Integer userId) {
+        if (!recommendationIndex.hasLikes(userId)) {
+            int[] popular = popularFilmIds;
+            if (popularModifications != recommendationIndex.modifications()) {
+                popular = refreshPopular();
+            }
+            return popular;
+        }
+        Snapshot snapshot = snapshots.getIfPresent(userId);
+        if (snapshot != null && recommendationIndex.isCurrent(userId, snapshot)) {
+            hits.incrementAndGet();
+            return snapshot.filmIds();
+        }
+        misses.incrementAndGet();
+        return snapshots.asMap().compute(userId, (id, old) ->
+                old != null && old != snapshot && recommendationIndex.isCurrent(id, old)
+                        ? old : recommendationIndex.snapshot(id)).filmIds();
+    }
+
+    public synchronized int precomputeAll() {
+        int[] userIds = recommendationIndex.userIds();
+        runTotal.set(userIds.length);
+        runDone.set(0);
+        long start = System.nanoTime();
+        pool.invoke(new Batch(userIds, 0, userIds.length));
+        snapshots.asMap().keySet().removeIf(userId -> !recommendationIndex.hasLikes(userId));
+        refreshPopular();
+        lastRunSeconds = (System.nanoTime() - start) / 1e9;
+        lastRunThroughput = lastRunSeconds > 0 ? userIds.length / lastRunSeconds : userIds.length;
+        log.info("Рекомендации рассчитаны для {} пользователей за {} мс, потоков {}",
+                userIds.length, Math.round(lastRunSeconds * 1000), parallelism);
+        return userIds.length;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, snapshots, "recommendations");
+        FunctionCounter.builder("filmorate.recommendations.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("filmorate.recommendations.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("filmorate.recommendations.precompute.users", precomputed, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("filmorate.recommendations.precompute.progress", this,
+                        cache -> cache.runTotal.get() == 0 ? 1 : (double) cache.runDone.get() / cache.runTotal.get())
+                .register(registry);
+        Gauge.builder("filmorate.recommendations.precompute.duration", this, cache -> cache.lastRunSeconds)
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("filmorate.recommendations.precompute.throughput", this, cache -> cache.lastRunThroughput)
+                .baseUnit("users/s")
+                .register(registry);
+    }
+
+    private int[] refreshPopular() {
+        long modifications = recommendationIndex.modifications();
+        int[] popular = recommendationIndex.popularFilmIds(coldStartSize);
+        popularFilmIds = popular;
+        popularModifications = modifications;
+        return popular;
+    }
+
+    private final class Batch extends RecursiveAction {
+        private final int[] userIds;
+        private final int from;
+        private final int to;
+
+        private Batch(int[] userIds, int from, int to) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FORK_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    snapshots.asMap().compute(userIds[i], (id, old) -> recommendationIndex.snapshot(id));
+                }
+                runDone.addAndGet(to - from);
+                precomputed.addAndGet(to - from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(userIds, from, middle), new Batch(userIds, middle, to));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.mappers.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.RatingRowMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@Slf4j
+@Component
+public class ReferenceDataCache {
+    private static final String FIND_ALL_GENRES = "SELECT * FROM genre";
+    private static final String FIND_ALL_RATINGS = "SELECT * FROM rating";
+    private static final String FIND_ALL_DIRECTORS = "SELECT * FROM director";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GenreRowMapper genreRowMapper;
+    private final RatingRowMapper ratingRowMapper;
+    private final DirectorRowMapper directorRowMapper;
+
+    private final Map<Integer, Genre> genres = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Rating> ratings = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Director> directors = new ConcurrentSkipListMap<>();
+
+    public ReferenceDataCache(JdbcTemplate jdbcTemplate, GenreRowMapper genreRowMapper,
+                              RatingRowMapper ratingRowMapper, DirectorRowMapper directorRowMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.genreRowMapper = genreRowMapper;
+        this.ratingRowMapper = ratingRowMapper;
+        this.directorRowMapper = directorRowMapper;
+    }
+
+    @PostConstruct
+    public void reload() {
+        List<Genre> loadedGenres = jdbcTemplate.query(FIND_ALL_GENRES, genreRowMapper);
+        List<Rating> loadedRatings = jdbcTemplate.query(FIND_ALL_RATINGS, ratingRowMapper);
+        List<Director> loadedDirectors = jdbcTemplate.query(FIND_ALL_DIRECTORS, directorRowMapper);
+        genres.clear();
+        loadedGenres.forEach(genre -> genres.put(genre.getId(), new CachedGenre(genre)));
+        ratings.clear();
+        loadedRatings.forEach(rating -> ratings.put(rating.getId(), new CachedRating(rating)));
+        directors.clear();
+        loadedDirectors.forEach(director -> directors.put(director.getId(), new CachedDirector(director)));
+        log.info("Справочники загружены: жанров {}, рейтингов {}, режиссёров {}",
+                genres.size(), ratings.size(), directors.size());
+    }
+
+    public List<Genre> getGenres() {
+        return List.copyOf(genres.values());
+    }
+
+    public Optional<Genre> findGenre(Integer id) {
+        return Optional.ofNullable(genres.get(id));
+    }
+
+    public List<Rating> getRatings() {
+        return List.copyOf(ratings.values());
+    }
+
+    public Optional<Rating> findRating(Integer id) {
+        return Optional.ofNullable(ratings.get(id));
+    }
+
+    public List<Director> getDirectors() {
+        return List.copyOf(directors.values());
+    }
+
+    public Optional<Director> findDirector(Integer id) {
+        return Optional.ofNullable(directors.get(id));
+    }
+
+    public void putDirector(Director director) {
+        Director cached = new CachedDirector(director);
+        afterCommit(() -> directors.put(cached.getId(), cached));
+    }
+
+    public void removeDirector(Integer id) {
+        afterCommit(() -> directors.remove(id));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Закэшированные справочные данные нельзя изменять");
+    }
+
+    private static final class CachedGenre extends Genre {
+        private CachedGenre(Genre genre) {
+            super.setId(genre.getId());
+            super.setName(genre.getName());
+        }
+
+        @Override
+        public void setId(Integer id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+    }
+
+    private static final class CachedRating extends Rating {
+        private CachedRating(Rating rating) {
+            super.setId(rating.getId());
+            super.setName(rating.getName());
+        }
+
+        @Override
+        public void setId(Integer id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+    }
+
+    private static final class CachedDirector extends Director {
+        private CachedDirector(Director director) {
+            super.setId(director.getId());
+            super.setName(director.getName());
+        }
+
+        @Override
+        public void setId(Integer id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+    }
+}
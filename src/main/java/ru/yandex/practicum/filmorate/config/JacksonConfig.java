@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+
+import java.util.Set;
+
+@Configuration
+public class JacksonConfig {
+    public static final String FILM_FIELDS_FILTER = "filmFields";
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer filmFieldsCustomizer() {
+        return builder -> builder
+                .mixIn(Film.class, FilmFieldsMixIn.class)
+                .filters(filmFieldsFilter(FilmField.ALL));
+    }
+
+    public static FilterProvider filmFieldsFilter(Set<FilmField> fields) {
+        SimpleBeanPropertyFilter filter = fields.containsAll(FilmField.ALL)
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(FilmField.params(fields));
+        return new SimpleFilterProvider().addFilter(FILM_FIELDS_FILTER, filter);
+    }
+
+    @JsonFilter(FILM_FIELDS_FILTER)
+    private interface FilmFieldsMixIn {
+    }
+}
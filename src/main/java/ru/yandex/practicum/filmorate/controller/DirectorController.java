@@ -35,16 +35,16 @@ public class DirectorController {
 
     @PostMapping
     public Director addNewDirector(@Valid @RequestBody Director director) {
-        return directorStorage.addNewDirector(director);
+        return directorService.addNewDirector(director);
     }
 
     @PutMapping
     public Director updateDirector(@Valid @RequestBody Director director) {
-        return directorStorage.updateDirector(director);
+        return directorService.updateDirector(director);
     }
 
     @DeleteMapping("/{id}")
     public void deleteDirector(@PathVariable Integer id) {
-        directorStorage.deleteDirector(id);
+        directorService.deleteDirector(id);
     }
 }
@@ -1,14 +1,22 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.config.JacksonConfig;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
 
 
-import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 
 @RestController
@@ -17,48 +25,95 @@ public class FilmController {
 
     private final FilmStorage filmStorage;
     private final FilmService filmService;
+    private final JsonStreamWriter jsonStreamWriter;
 
-    public FilmController(FilmStorage filmStorage, FilmService filmService) {
+    public FilmController(FilmStorage filmStorage, FilmService filmService, JsonStreamWriter jsonStreamWriter) {
         this.filmStorage = filmStorage;
         this.filmService = filmService;
+        this.jsonStreamWriter = jsonStreamWriter;
     }
 
     @GetMapping("/popular")
-    public List<Film> mostPopularFilms(@RequestParam(defaultValue = "10") int count,
-                                       @RequestParam(required = false) Integer genreId,
-                                       @RequestParam(required = false) Integer year) {
-        return filmService.mostPopularFilms(count, genreId, year);
+    public MappingJacksonValue mostPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                @RequestParam(required = false) Integer genreId,
+                                                @RequestParam(required = false) Integer year,
+                                                @RequestParam(required = false) String window,
+                                                @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        if (window != null) {
+            return project(filmService.trendingFilms(count, genreId, year, TrendingWindow.fromParam(window),
+                    filmFields), filmFields);
+        }
+        return project(filmService.mostPopularFilms(count, genreId, year, filmFields), filmFields);
     }
 
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable Integer id) {
-        return filmService.getFilmByIdOrThrow(id);
+    public MappingJacksonValue getFilmById(@PathVariable Integer id,
+                                           @RequestParam(required = false) String fields) {
+        return project(filmService.getFilmByIdOrThrow(id), FilmField.parse(fields));
     }
 
     @GetMapping("/search")
-    public List<Film> searchFilm(@RequestParam String query, @RequestParam String by) {
-        return filmService.searchFilm(query, by);
+    public MappingJacksonValue searchFilm(@RequestParam String query, @RequestParam String by,
+                                          @RequestParam(defaultValue = "false") boolean fuzzy,
+                                          @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return project(filmService.searchFilm(query, by, fuzzy, filmFields), filmFields);
+    }
+
+    @GetMapping("/search/suggest")
+    public List<Suggestion> suggest(@RequestParam String prefix, @RequestParam(defaultValue = "10") int count) {
+        return filmService.suggest(prefix, count);
     }
 
     @GetMapping
-    public Collection<Film> getAllFilms() {
-        return filmStorage.getAllFilms();
+    public ResponseEntity<MappingJacksonValue> getAllFilms(@RequestParam(required = false) String after,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(project(filmStorage.getAllFilms(filmFields), filmFields));
+        }
+        return toResponse(filmService.getFilmsPage(after, limit, filmFields), filmFields);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllFilms(@RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return jsonStreamWriter.<Film>jsonArray(consumer -> filmStorage.forEachFilm(filmFields, consumer),
+                JacksonConfig.filmFieldsFilter(filmFields));
+    }
+
+    @GetMapping(produces = JsonStreamWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllFilmsAsNdjson(@RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return jsonStreamWriter.<Film>ndjson(consumer -> filmStorage.forEachFilm(filmFields, consumer),
+                JacksonConfig.filmFieldsFilter(filmFields));
     }
 
     @GetMapping("/director/{directorId}")
-    public Collection<Film> getAllFilmsByDirector(@PathVariable Integer directorId,
-                                                  @RequestParam(required = false) String sortBy) {
-        return filmService.getAllFilmsByDirector(directorId, sortBy);
+    public ResponseEntity<MappingJacksonValue> getAllFilmsByDirector(@PathVariable Integer directorId,
+                                                                     @RequestParam(required = false) String sortBy,
+                                                                     @RequestParam(required = false) String after,
+                                                                     @RequestParam(required = false) Integer limit,
+                                                                     @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(project(filmService.getAllFilmsByDirector(directorId, sortBy, filmFields),
+                    filmFields));
+        }
+        return toResponse(filmService.getFilmsByDirectorPage(directorId, sortBy, after, limit, filmFields),
+                filmFields);
     }
 
     @PostMapping
     public Film addNewFilm(@Valid @RequestBody Film film) {
-        return filmStorage.addNewFilm(film);
+        return filmService.addNewFilm(film);
     }
 
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film newFilm) {
-        return filmStorage.updateFilm(newFilm);
+        return filmService.updateFilm(newFilm);
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -80,4 +135,18 @@ public class FilmController {
     public void deleteFilmById(@PathVariable Integer id) {
         filmService.deleteFilmById(id);
     }
+
+    private static ResponseEntity<MappingJacksonValue> toResponse(Page<Film> page, Set<FilmField> fields) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(Page.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(project(page.getItems(), fields));
+    }
+
+    private static MappingJacksonValue project(Object body, Set<FilmField> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(JacksonConfig.filmFieldsFilter(fields));
+        return value;
+    }
 }
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+@Component
+public class JsonStreamWriter {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+
+    public JsonStreamWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> jsonArray(Consumer<Consumer<T>> source) {
+        return jsonArray(source, objectWriter);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> jsonArray(Consumer<Consumer<T>> source, FilterProvider filters) {
+        return jsonArray(source, objectWriter.with(filters));
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<T>> source) {
+        return ndjson(source, objectWriter);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<T>> source, FilterProvider filters) {
+        return ndjson(source, objectWriter.with(filters));
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> jsonArray(Consumer<Consumer<T>> source, ObjectWriter writer) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = createGenerator(out)) {
+                generator.writeStartArray();
+                source.accept(item -> write(writer, generator, item));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<T>> source, ObjectWriter writer) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                source.accept(item -> {
+                    write(writer, generator, item);
+                    try {
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return objectMapper.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private static void write(ObjectWriter writer, JsonGenerator generator, Object item) {
+        try {
+            writer.writeValue(generator, item);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
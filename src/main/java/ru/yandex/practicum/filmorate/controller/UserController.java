@@ -1,10 +1,17 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.service.FeedStreamService;
 import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.UserDbStorage;
@@ -18,11 +25,17 @@ public class UserController {
     private final UserDbStorage userStorage;
     private final UserService userService;
     private final RecommendationService recommendationService;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final FeedStreamService feedStreamService;
 
-    public UserController(UserDbStorage userStorage, UserService userService, RecommendationService recommendationService) {
+    public UserController(UserDbStorage userStorage, UserService userService,
+                          RecommendationService recommendationService, JsonStreamWriter jsonStreamWriter,
+                          FeedStreamService feedStreamService) {
         this.userStorage = userStorage;
         this.userService = userService;
         this.recommendationService = recommendationService;
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.feedStreamService = feedStreamService;
     }
 
     @GetMapping("/{id}/friends")
@@ -35,9 +48,40 @@ public class UserController {
         return userService.findCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> findFriendSuggestions(@PathVariable Integer id,
+                                            @RequestParam(required = false) Integer limit) {
+        return userService.findFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/path/{otherId}")
+    public List<User> findFriendshipPath(@PathVariable Integer id, @PathVariable Integer otherId,
+                                         @RequestParam(required = false) Integer maxDepth) {
+        return userService.findFriendshipPath(id, otherId, maxDepth);
+    }
+
     @GetMapping
-    public Collection<User> findAll() {
-        return userStorage.getAllUsers();
+    public ResponseEntity<Collection<User>> findAll(@RequestParam(required = false) String after,
+                                                    @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userStorage.getAllUsers());
+        }
+        Page<User> page = userService.getUsersPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(Page.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return jsonStreamWriter.jsonArray(userStorage::forEachUser);
+    }
+
+    @GetMapping(produces = JsonStreamWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAsNdjson() {
+        return jsonStreamWriter.ndjson(userStorage::forEachUser);
     }
 
     @GetMapping("/{id}")
@@ -71,8 +115,37 @@ public class UserController {
     }
 
     @GetMapping("/{id}/feed")
-    public List<Event> getFeed(@PathVariable("id") Integer userId) {
-        return userService.getEventFeed(userId);
+    public ResponseEntity<Collection<Event>> getFeed(@PathVariable("id") Integer userId,
+                                                     @RequestParam(required = false) String before,
+                                                     @RequestParam(required = false) Integer limit) {
+        if (before == null && limit == null) {
+            return ResponseEntity.ok(userService.getEventFeed(userId));
+        }
+        Page<Event> page = userService.getEventFeedPage(userId, before, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(Page.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping(value = "/{id}/feed", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamFeed(@PathVariable("id") Integer userId) {
+        userService.findUser(userId);
+        return jsonStreamWriter.<Event>jsonArray(consumer -> userService.forEachFeedEvent(userId, consumer));
+    }
+
+    @GetMapping(value = "/{id}/feed", produces = JsonStreamWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFeedAsNdjson(@PathVariable("id") Integer userId) {
+        userService.findUser(userId);
+        return jsonStreamWriter.<Event>ndjson(consumer -> userService.forEachFeedEvent(userId, consumer));
+    }
+
+    @GetMapping(value = "/{id}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeFeed(@PathVariable("id") Integer userId,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Integer lastEventId) {
+        userService.findUser(userId);
+        return feedStreamService.subscribe(userId, lastEventId);
     }
 
     @DeleteMapping("/{id}")
@@ -81,7 +154,8 @@ public class UserController {
     }
 
     @GetMapping("/{userId}/recommendations")
-    public List<Film> getRecommendations(@PathVariable Integer userId) {
-        return recommendationService.getRecommendedFilms(userId);
+    public List<Film> getRecommendations(@PathVariable Integer userId,
+                                         @RequestParam(defaultValue = "exact") String mode) {
+        return recommendationService.getRecommendedFilms(userId, RecommendationMode.fromParam(mode));
     }
 }
@@ -26,6 +26,13 @@ public class ErrorHandler {
         return Map.of("error", "Искомый объект не найден.", "message", e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> handleSearchAborted(final SearchAbortedException e) {
+        log.warn("Поиск остановлен по лимиту: {}", e.getMessage());
+        return Map.of("error", "Поиск остановлен по лимиту.", "message", e.getMessage());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Map<String, String> handleRuntimeException(final RuntimeException e) {
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class SearchAbortedException extends RuntimeException {
+    public SearchAbortedException(String message) {
+        super(message);
+    }
+}
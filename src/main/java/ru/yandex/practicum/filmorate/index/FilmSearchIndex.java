@@ -0,0 +1,337 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.interfaces.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final String TOKEN_DELIMITER = "[^\\p{L}\\p{N}]+";
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final int maxFuzzyTerms;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, String> filmTitles = new HashMap<>();
+    private final Map<Integer, String> directorNames = new HashMap<>();
+    private final Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+    private final Map<Integer, Set<Integer>> directorFilms = new HashMap<>();
+    private final Map<Long, PostingList> titleGrams = new HashMap<>();
+    private final Map<Long, PostingList> directorGrams = new HashMap<>();
+    private final Map<String, PostingList> titleTerms = new HashMap<>();
+    private final Map<String, PostingList> directorTerms = new HashMap<>();
+    private BkTree termTree = new BkTree();
+    private boolean termLimitReported;
+
+    public FilmSearchIndex(FilmStorage filmStorage, DirectorStorage directorStorage,
+                           @Value("${filmorate.search.fuzzy.max-terms:500000}") int maxFuzzyTerms) {
+        this.filmStorage = filmStorage;
+        this.directorStorage = directorStorage;
+        this.maxFuzzyTerms = maxFuzzyTerms;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, String> titles = filmStorage.getFilmNames();
+        Map<Integer, Set<Integer>> links = filmStorage.getFilmDirectorIds();
+        List<Director> directors = directorStorage.getAllDirectors();
+        lock.writeLock().lock();
+        try {
+            filmTitles.clear();
+            directorNames.clear();
+            filmDirectors.clear();
+            directorFilms.clear();
+            titleGrams.clear();
+            directorGrams.clear();
+            titleTerms.clear();
+            directorTerms.clear();
+            termTree = new BkTree();
+            termLimitReported = false;
+            directors.forEach(this::putDirectorLocked);
+            titles.forEach((filmId, title) -> putFilmLocked(filmId, title, links.getOrDefault(filmId, Set.of())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен: фильмов {}, режиссёров {}, слов {}",
+                titles.size(), directors.size(), termTree.size());
+    }
+
+    public void putFilm(Film film) {
+        Set<Integer> directorIds = new HashSet<>();
+        if (film.getDirectors() != null) {
+            film.getDirectors().forEach(director -> directorIds.add(director.getId()));
+        }
+        lock.writeLock().lock();
+        try {
+            removeFilmLocked(film.getId());
+            putFilmLocked(film.getId(), film.getName(), directorIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(Integer filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilmLocked(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            String previous = directorNames.get(director.getId());
+            if (previous != null) {
+                removeGrams(directorGrams, director.getId(), previous);
+                removeTerms(directorTerms, director.getId(), previous);
+            }
+            putDirectorLocked(director);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(Integer directorId) {
+        lock.writeLock().lock();
+        try {
+            String previous = directorNames.remove(directorId);
+            if (previous != null) {
+                removeGrams(directorGrams, directorId, previous);
+                removeTerms(directorTerms, directorId, previous);
+                compactTermTree();
+            }
+            Set<Integer> films = directorFilms.remove(directorId);
+            if (films != null) {
+                films.forEach(filmId -> filmDirectors.getOrDefault(filmId, new HashSet<>()).remove(directorId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Set<Integer> searchByTitle(String query) {
+        return searchByTitle(query, false);
+    }
+
+    public Set<Integer> searchByTitle(String query, boolean fuzzy) {
+        String normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            Set<Integer> films = search(titleGrams, filmTitles, normalized);
+            if (fuzzy) {
+                films.addAll(fuzzySearch(titleTerms, normalized));
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Integer> searchByDirector(String query) {
+        return searchByDirector(query, false);
+    }
+
+    public Set<Integer> searchByDirector(String query, boolean fuzzy) {
+        String normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            Set<Integer> directorIds = search(directorGrams, directorNames, normalized);
+            if (fuzzy) {
+                directorIds.addAll(fuzzySearch(directorTerms, normalized));
+            }
+            Set<Integer> films = new HashSet<>();
+            for (Integer directorId : directorIds) {
+                films.addAll(directorFilms.getOrDefault(directorId, Set.of()));
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Integer> fuzzySearch(Map<String, PostingList> terms, String query) {
+        Set<Integer> result = null;
+        for (String token : tokens(query)) {
+            Set<Integer> matched = new HashSet<>();
+            termTree.search(token, maxDistance(token), term -> {
+                PostingList posting = terms.get(term);
+                if (posting != null) {
+                    for (int id : posting.toArray()) {
+                        matched.add(id);
+                    }
+                }
+            });
+            if (result == null) {
+                result = matched;
+            } else {
+                result.retainAll(matched);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? new HashSet<>() : result;
+    }
+
+    private Set<Integer> search(Map<Long, PostingList> grams, Map<Integer, String> texts, String query) {
+        Set<Integer> result = new HashSet<>();
+        if (query.length() < 3) {
+            texts.forEach((id, text) -> {
+                if (text.contains(query)) {
+                    result.add(id);
+                }
+            });
+            return result;
+        }
+        List<PostingList> postings = new ArrayList<>();
+        for (long gram : trigrams(query)) {
+            PostingList posting = grams.get(gram);
+            if (posting == null) {
+                return result;
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(PostingList::size));
+        int[] candidates = postings.get(0).toArray();
+        for (int i = 1; i < postings.size() && candidates.length > 0; i++) {
+            candidates = postings.get(i).retainAll(candidates);
+        }
+        for (int id : candidates) {
+            if (texts.get(id).contains(query)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private void putFilmLocked(Integer filmId, String title, Set<Integer> directorIds) {
+        String text = normalize(title);
+        filmTitles.put(filmId, text);
+        addGrams(titleGrams, filmId, text);
+        addTerms(titleTerms, filmId, text);
+        filmDirectors.put(filmId, new HashSet<>(directorIds));
+        directorIds.forEach(directorId -> directorFilms.computeIfAbsent(directorId, id -> new HashSet<>()).add(filmId));
+    }
+
+    private void removeFilmLocked(Integer filmId) {
+        String previous = filmTitles.remove(filmId);
+        if (previous != null) {
+            removeGrams(titleGrams, filmId, previous);
+            removeTerms(titleTerms, filmId, previous);
+            compactTermTree();
+        }
+        Set<Integer> directorIds = filmDirectors.remove(filmId);
+        if (directorIds != null) {
+            directorIds.forEach(directorId -> {
+                Set<Integer> films = directorFilms.get(directorId);
+                if (films != null) {
+                    films.remove(filmId);
+                }
+            });
+        }
+    }
+
+    private void putDirectorLocked(Director director) {
+        String text = normalize(director.getName());
+        directorNames.put(director.getId(), text);
+        addGrams(directorGrams, director.getId(), text);
+        addTerms(directorTerms, director.getId(), text);
+    }
+
+    private void addTerms(Map<String, PostingList> terms, int id, String text) {
+        for (String token : tokens(text)) {
+            PostingList posting = terms.get(token);
+            if (posting == null) {
+                if (termTree.size() >= maxFuzzyTerms && !termTree.contains(token)) {
+                    if (!termLimitReported) {
+                        log.warn("Достигнут предел словаря нечёткого поиска: {} слов", maxFuzzyTerms);
+                        termLimitReported = true;
+                    }
+                    continue;
+                }
+                termTree.add(token);
+                posting = new PostingList();
+                terms.put(token, posting);
+            }
+            posting.add(id);
+        }
+    }
+
+    private static void removeTerms(Map<String, PostingList> terms, int id, String text) {
+        for (String token : tokens(text)) {
+            PostingList posting = terms.get(token);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                terms.remove(token);
+            }
+        }
+    }
+
+    private void compactTermTree() {
+        int liveTerms = titleTerms.size() + directorTerms.size();
+        if (termTree.size() <= 2 * liveTerms + 1024) {
+            return;
+        }
+        BkTree compacted = new BkTree();
+        titleTerms.keySet().forEach(compacted::add);
+        directorTerms.keySet().forEach(compacted::add);
+        termTree = compacted;
+        termLimitReported = false;
+    }
+
+    private static void addGrams(Map<Long, PostingList> grams, int id, String text) {
+        for (long gram : trigrams(text)) {
+            grams.computeIfAbsent(gram, key -> new PostingList()).add(id);
+        }
+    }
+
+    private static void removeGrams(Map<Long, PostingList> grams, int id, String text) {
+        for (long gram : trigrams(text)) {
+            PostingList posting = grams.get(gram);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private static Set<String> tokens(String text) {
+        Set<String> tokens = new HashSet<>();
+        for (String token : text.split(TOKEN_DELIMITER)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static int maxDistance(String token) {
+        if (token.length() <= 3) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
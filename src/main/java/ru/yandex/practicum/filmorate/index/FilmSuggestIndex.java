@@ -0,0 +1,225 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.SuggestionType;
+import ru.yandex.practicum.filmorate.storage.interfaces.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+@Slf4j
+@Component
+public class FilmSuggestIndex {
+    private static final Comparator<Suggestion> ORDER = Comparator
+            .comparing(Suggestion::getLikes, Comparator.reverseOrder())
+            .thenComparing(Suggestion::getName)
+            .thenComparing(Suggestion::getId);
+    private static final Comparator<Entry> RANK = Comparator
+            .comparingInt(Entry::likes).reversed()
+            .thenComparing(Entry::name)
+            .thenComparingInt(Entry::id)
+            .thenComparing(Entry::type);
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final int rankedPrefixLength;
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final Map<String, NavigableSet<Entry>> ranked = new ConcurrentHashMap<>();
+    private final Map<Integer, String> filmKeys = new ConcurrentHashMap<>();
+    private final Map<Integer, String> directorKeys = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> filmLikes = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> directorLikes = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> filmDirectors = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    public FilmSuggestIndex(FilmStorage filmStorage, DirectorStorage directorStorage,
+                            @Value("${filmorate.suggest.ranked-prefix-length:3}") int rankedPrefixLength) {
+        this.filmStorage = filmStorage;
+        this.directorStorage = directorStorage;
+        this.rankedPrefixLength = rankedPrefixLength;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, String> titles = filmStorage.getFilmNames();
+        Map<Integer, Set<Integer>> links = filmStorage.getFilmDirectorIds();
+        Map<Integer, Integer> likeCounts = filmStorage.getFilmLikeCounts();
+        List<Director> directors = directorStorage.getAllDirectors();
+        synchronized (writeLock) {
+            entries.clear();
+            ranked.clear();
+            filmKeys.clear();
+            directorKeys.clear();
+            filmLikes.clear();
+            directorLikes.clear();
+            filmDirectors.clear();
+            directors.forEach(this::putDirectorLocked);
+            titles.forEach((filmId, title) -> {
+                putFilmLocked(filmId, title, links.getOrDefault(filmId, Set.of()));
+                addLikesLocked(filmId, likeCounts.getOrDefault(filmId, 0));
+            });
+        }
+        log.info("Индекс подсказок построен: фильмов {}, режиссёров {}", titles.size(), directors.size());
+    }
+
+    public List<Suggestion> suggest(String prefix, int count) {
+        String normalized = prefix.toLowerCase(Locale.ROOT);
+        if (normalized.length() <= rankedPrefixLength) {
+            return ranked.getOrDefault(normalized, Collections.emptyNavigableSet()).stream()
+                    .limit(count)
+                    .map(FilmSuggestIndex::toSuggestion)
+                    .toList();
+        }
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(ORDER.reversed());
+        for (Entry entry : entries.subMap(normalized, normalized + Character.MAX_VALUE).values()) {
+            top.offer(toSuggestion(entry));
+            if (top.size() > count) {
+                top.poll();
+            }
+        }
+        List<Suggestion> result = new ArrayList<>(top);
+        result.sort(ORDER);
+        return result;
+    }
+
+    public void putFilm(Film film) {
+        Set<Integer> directorIds = new HashSet<>();
+        if (film.getDirectors() != null) {
+            film.getDirectors().forEach(director -> directorIds.add(director.getId()));
+        }
+        synchronized (writeLock) {
+            putFilmLocked(film.getId(), film.getName(), directorIds);
+        }
+    }
+
+    public void removeFilm(Integer filmId) {
+        synchronized (writeLock) {
+            addLikesLocked(filmId, -filmLikes.getOrDefault(filmId, 0));
+            filmLikes.remove(filmId);
+            filmDirectors.remove(filmId);
+            String key = filmKeys.remove(filmId);
+            if (key != null) {
+                unindexLocked(key);
+            }
+        }
+    }
+
+    public void putDirector(Director director) {
+        synchronized (writeLock) {
+            putDirectorLocked(director);
+        }
+    }
+
+    public void removeDirector(Integer directorId) {
+        synchronized (writeLock) {
+            String key = directorKeys.remove(directorId);
+            if (key != null) {
+                unindexLocked(key);
+            }
+            directorLikes.remove(directorId);
+            filmDirectors.values().forEach(directorIds -> directorIds.remove(directorId));
+        }
+    }
+
+    public void onLikeChanged(Integer filmId, int delta) {
+        synchronized (writeLock) {
+            addLikesLocked(filmId, delta);
+        }
+    }
+
+    private void putFilmLocked(Integer filmId, String name, Set<Integer> directorIds) {
+        int likes = filmLikes.getOrDefault(filmId, 0);
+        replaceEntry(filmKeys, new Entry(filmId, SuggestionType.FILM, name, likes));
+        Set<Integer> previous = filmDirectors.put(filmId, ConcurrentHashMap.newKeySet());
+        if (previous != null) {
+            previous.forEach(directorId -> addDirectorLikesLocked(directorId, -likes));
+        }
+        filmDirectors.get(filmId).addAll(directorIds);
+        directorIds.forEach(directorId -> addDirectorLikesLocked(directorId, likes));
+    }
+
+    private void putDirectorLocked(Director director) {
+        replaceEntry(directorKeys, new Entry(director.getId(), SuggestionType.DIRECTOR, director.getName(),
+                directorLikes.getOrDefault(director.getId(), 0)));
+    }
+
+    private void addLikesLocked(Integer filmId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        refreshLikesLocked(filmKeys.get(filmId), filmLikes.merge(filmId, delta, Integer::sum));
+        filmDirectors.getOrDefault(filmId, Set.of())
+                .forEach(directorId -> addDirectorLikesLocked(directorId, delta));
+    }
+
+    private void addDirectorLikesLocked(Integer directorId, int delta) {
+        refreshLikesLocked(directorKeys.get(directorId), directorLikes.merge(directorId, delta, Integer::sum));
+    }
+
+    private void refreshLikesLocked(String key, int likes) {
+        Entry entry = key == null ? null : entries.get(key);
+        if (entry != null && entry.likes() != likes) {
+            indexLocked(key, new Entry(entry.id(), entry.type(), entry.name(), likes));
+        }
+    }
+
+    private void replaceEntry(Map<Integer, String> keys, Entry entry) {
+        String key = entry.name().toLowerCase(Locale.ROOT) + '\u0000' + entry.type().ordinal() + entry.id();
+        indexLocked(key, entry);
+        String previous = keys.put(entry.id(), key);
+        if (previous != null && !previous.equals(key)) {
+            unindexLocked(previous);
+        }
+    }
+
+    private void indexLocked(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            unrankLocked(key, previous);
+        }
+        int length = Math.min(rankedPrefixLength, key.indexOf('\u0000'));
+        for (int i = 1; i <= length; i++) {
+            ranked.computeIfAbsent(key.substring(0, i), prefix -> new ConcurrentSkipListSet<>(RANK)).add(entry);
+        }
+    }
+
+    private void unindexLocked(String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            unrankLocked(key, previous);
+        }
+    }
+
+    private void unrankLocked(String key, Entry entry) {
+        int length = Math.min(rankedPrefixLength, key.indexOf('\u0000'));
+        for (int i = 1; i <= length; i++) {
+            String prefix = key.substring(0, i);
+            NavigableSet<Entry> set = ranked.get(prefix);
+            if (set != null && set.remove(entry) && set.isEmpty()) {
+                ranked.remove(prefix);
+            }
+        }
+    }
+
+    private static Suggestion toSuggestion(Entry entry) {
+        return Suggestion.builder()
+                .id(entry.id())
+                .name(entry.name())
+                .type(entry.type())
+                .likes(entry.likes())
+                .build();
+    }
+
+    private record Entry(int id, SuggestionType type, String name, int likes) {
+    }
+}
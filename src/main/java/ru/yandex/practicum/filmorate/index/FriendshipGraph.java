@@ -0,0 +1,636 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.SearchAbortedException;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+@Slf4j
+@Component
+public class FriendshipGraph {
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final UserStorage userStorage;
+    private final long rebuildIntervalMs;
+    private final int deltaLimit;
+    private final int suggestionsMaxFriends;
+    private final int suggestionsMaxEdges;
+    private final int pathMaxDepth;
+    private final int pathMaxNodes;
+    private final long pathTimeoutMs;
+
+    private final Map<Integer, int[]> delta = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> reverseDelta = new ConcurrentHashMap<>();
+    private final List<Change> journal = new ArrayList<>();
+    private volatile Csr csr = Csr.EMPTY;
+    private boolean rebuilding;
+    private boolean compactScheduled;
+    private ScheduledExecutorService scheduler;
+
+    public FriendshipGraph(UserStorage userStorage,
+                           @Value("${filmorate.friends.rebuild-interval-ms:3600000}") long rebuildIntervalMs,
+                           @Value("${filmorate.friends.delta-limit:1024}") int deltaLimit,
+                           @Value("${filmorate.friends.suggestions.max-friends:1000}") int suggestionsMaxFriends,
+                           @Value("${filmorate.friends.suggestions.max-edges:100000}") int suggestionsMaxEdges,
+                           @Value("${filmorate.friends.path.max-depth:6}") int pathMaxDepth,
+                           @Value("${filmorate.friends.path.max-nodes:100000}") int pathMaxNodes,
+                           @Value("${filmorate.friends.path.timeout-ms:200}") long pathTimeoutMs) {
+        this.userStorage = userStorage;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+        this.deltaLimit = deltaLimit;
+        this.suggestionsMaxFriends = suggestionsMaxFriends;
+        this.suggestionsMaxEdges = suggestionsMaxEdges;
+        this.pathMaxDepth = pathMaxDepth;
+        this.pathMaxNodes = pathMaxNodes;
+        this.pathTimeoutMs = pathTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "friendship-graph");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (rebuildIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("Ошибка перестроения графа дружбы", e);
+                }
+            }, rebuildIntervalMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void rebuild() {
+        synchronized (this) {
+            rebuilding = true;
+            journal.clear();
+        }
+        Csr loaded;
+        try {
+            EdgeList edges = new EdgeList();
+            userStorage.forEachFriendship(edges::add);
+            loaded = Csr.of(edges);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuilding = false;
+                journal.clear();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            Map<Integer, int[]> replayed = new HashMap<>();
+            for (Change change : journal) {
+                change.applyTo(loaded, replayed);
+            }
+            csr = loaded.merge(replayed);
+            delta.clear();
+            reverseDelta.clear();
+            rebuilding = false;
+            journal.clear();
+        }
+        log.info("Граф дружбы построен: пользователей {}, связей {}", csr.vertexCount(), csr.edgeCount());
+    }
+
+    public int[] friendsOf(Integer userId) {
+        int[] row = delta.get(userId);
+        return row != null ? row.clone() : csr.row(userId);
+    }
+
+    public boolean isFriend(Integer userId, Integer friendId) {
+        int[] row = delta.get(userId);
+        if (row != null) {
+            return Arrays.binarySearch(row, friendId) >= 0;
+        }
+        Csr current = csr;
+        if (userId < 0 || userId >= current.vertexCount()) {
+            return false;
+        }
+        return Arrays.binarySearch(current.targets, current.offsets[userId], current.offsets[userId + 1],
+                friendId) >= 0;
+    }
+
+    public int[] commonFriends(Integer userId, Integer otherId) {
+        int[] first = delta.get(userId);
+        int[] second = delta.get(otherId);
+        Csr current = csr;
+        int[] a = first != null ? first : current.targets;
+        int aFrom = first != null ? 0 : current.from(userId);
+        int aTo = first != null ? first.length : current.to(userId);
+        int[] b = second != null ? second : current.targets;
+        int bFrom = second != null ? 0 : current.from(otherId);
+        int bTo = second != null ? second.length : current.to(otherId);
+
+        int[] common = new int[Math.max(0, Math.min(aTo - aFrom, bTo - bFrom))];
+        int size = 0;
+        while (aFrom < aTo && bFrom < bTo) {
+            if (a[aFrom] < b[bFrom]) {
+                aFrom++;
+            } else if (a[aFrom] > b[bFrom]) {
+                bFrom++;
+            } else {
+                common[size++] = a[aFrom];
+                aFrom++;
+                bFrom++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    public int[] suggestions(Integer userId, int limit, IntUnaryOperator tieBreaker) {
+        int[] friends = friendsOf(userId);
+        IntIntMap mutual = new IntIntMap(Math.min(suggestionsMaxEdges, 1024));
+        int budget = suggestionsMaxEdges;
+        int scanned = Math.min(friends.length, suggestionsMaxFriends);
+        for (int i = 0; i < scanned && budget > 0; i++) {
+            int[] row = delta.get(friends[i]);
+            Csr current = csr;
+            int[] source = row != null ? row : current.targets;
+            int from = row != null ? 0 : current.from(friends[i]);
+            int to = Math.min(row != null ? row.length : current.to(friends[i]), from + budget);
+            budget -= to - from;
+            for (int j = from; j < to; j++) {
+                int candidate = source[j];
+                if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                    mutual.increment(candidate);
+                }
+            }
+        }
+        if (budget <= 0 || scanned < friends.length) {
+            log.debug("Обход друзей друзей пользователя {} остановлен по лимиту", userId);
+        }
+        return mutual.topKeys(limit, tieBreaker);
+    }
+
+    public int maxPathDepth() {
+        return pathMaxDepth;
+    }
+
+    public int[] shortestPath(Integer sourceId, Integer targetId, int maxDepth) {
+        if (sourceId.equals(targetId)) {
+            return new int[]{sourceId};
+        }
+        return new PathSearch(sourceId, targetId).run(maxDepth);
+    }
+
+    public synchronized void addFriend(Integer userId, Integer friendId) {
+        afterChange(apply(Change.ADD, userId, friendId));
+    }
+
+    public synchronized void removeFriend(Integer userId, Integer friendId) {
+        afterChange(apply(Change.REMOVE, userId, friendId));
+    }
+
+    public synchronized void removeUser(Integer userId) {
+        for (int friendId : friendsOf(userId)) {
+            apply(Change.REMOVE, userId, friendId);
+        }
+        int[] row = reverseDelta.get(userId);
+        for (int followerId : row != null ? row.clone() : csr.transposed.row(userId)) {
+            apply(Change.REMOVE, followerId, userId);
+        }
+        afterChange(new Change(Change.DELETE_USER, userId, 0));
+    }
+
+    public synchronized void compact() {
+        compactScheduled = false;
+        if (delta.isEmpty()) {
+            return;
+        }
+        csr = csr.merge(delta);
+        delta.clear();
+        reverseDelta.clear();
+    }
+
+    private Change apply(int type, int userId, int friendId) {
+        Change change = new Change(type, userId, friendId);
+        change.applyTo(csr, delta);
+        new Change(type, friendId, userId).applyTo(csr.transposed, reverseDelta);
+        return change;
+    }
+
+    private void afterChange(Change change) {
+        if (rebuilding) {
+            journal.add(change);
+        }
+        if (delta.size() <= deltaLimit || compactScheduled) {
+            return;
+        }
+        if (scheduler != null) {
+            compactScheduled = true;
+            scheduler.execute(this::compact);
+        } else {
+            compact();
+        }
+    }
+
+    private final class PathSearch {
+        private final int sourceId;
+        private final int targetId;
+        private final long deadline;
+        private final IntIntMap forwardParents = new IntIntMap(64);
+        private final IntIntMap backwardParents = new IntIntMap(64);
+        private int[] forwardFrontier;
+        private int[] backwardFrontier;
+        private int visited = 2;
+        private int scanned;
+        private boolean aborted;
+
+        private PathSearch(int sourceId, int targetId) {
+            this.sourceId = sourceId;
+            this.targetId = targetId;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pathTimeoutMs);
+        }
+
+        private int[] run(int maxDepth) {
+            forwardParents.put(sourceId, sourceId);
+            backwardParents.put(targetId, targetId);
+            forwardFrontier = new int[]{sourceId};
+            backwardFrontier = new int[]{targetId};
+            for (int depth = 0; depth < maxDepth; depth++) {
+                if (forwardFrontier.length == 0 || backwardFrontier.length == 0) {
+                    break;
+                }
+                int meeting = expand(forwardFrontier.length <= backwardFrontier.length);
+                if (meeting != 0) {
+                    return path(meeting);
+                }
+                if (aborted) {
+                    throw new SearchAbortedException("Поиск цепочки дружбы между пользователями " + sourceId
+                                                     + " и " + targetId + " остановлен по лимиту: посещено "
+                                                     + visited + ", просмотрено связей " + scanned);
+                }
+            }
+            return NO_FRIENDS;
+        }
+
+        private int expand(boolean forward) {
+            int[] frontier = forward ? forwardFrontier : backwardFrontier;
+            IntIntMap parents = forward ? forwardParents : backwardParents;
+            IntIntMap opposite = forward ? backwardParents : forwardParents;
+            Map<Integer, int[]> overrides = forward ? delta : reverseDelta;
+            int[] next = new int[Math.max(16, frontier.length)];
+            int size = 0;
+            for (int node : frontier) {
+                int[] row = overrides.get(node);
+                Csr current = forward ? csr : csr.transposed;
+                int[] source = row != null ? row : current.targets;
+                int from = row != null ? 0 : current.from(node);
+                int to = row != null ? row.length : current.to(node);
+                for (int i = from; i < to; i++) {
+                    if ((++scanned & 0xFF) == 0
+                        && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) {
+                        aborted = true;
+                        return 0;
+                    }
+                    int neighbour = source[i];
+                    if (parents.get(neighbour) != 0) {
+                        continue;
+                    }
+                    parents.put(neighbour, node);
+                    if (opposite.get(neighbour) != 0) {
+                        return neighbour;
+                    }
+                    if (++visited > pathMaxNodes) {
+                        aborted = true;
+                        return 0;
+                    }
+                    if (size == next.length) {
+                        next = Arrays.copyOf(next, size * 2);
+                    }
+                    next[size++] = neighbour;
+                }
+            }
+            if (forward) {
+                forwardFrontier = Arrays.copyOf(next, size);
+            } else {
+                backwardFrontier = Arrays.copyOf(next, size);
+            }
+            return 0;
+        }
+
+        private int[] path(int meeting) {
+            int[] path = new int[8];
+            int size = 0;
+            for (int node = meeting; ; node = forwardParents.get(node)) {
+                path = size == path.length ? Arrays.copyOf(path, size * 2) : path;
+                path[size++] = node;
+                if (node == sourceId) {
+                    break;
+                }
+            }
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int swap = path[i];
+                path[i] = path[j];
+                path[j] = swap;
+            }
+            for (int node = meeting; node != targetId; ) {
+                node = backwardParents.get(node);
+                path = size == path.length ? Arrays.copyOf(path, size * 2) : path;
+                path[size++] = node;
+            }
+            return Arrays.copyOf(path, size);
+        }
+    }
+
+    private record Change(int type, int userId, int friendId) {
+        static final int ADD = 1;
+        static final int REMOVE = 2;
+        static final int DELETE_USER = 3;
+
+        void applyTo(Csr base, Map<Integer, int[]> overrides) {
+            if (type == DELETE_USER) {
+                overrides.put(userId, NO_FRIENDS);
+                overrides.replaceAll((id, row) -> without(row, userId));
+                for (int id : base.transposed.row(userId)) {
+                    if (!overrides.containsKey(id)) {
+                        overrides.put(id, without(base.row(id), userId));
+                    }
+                }
+                return;
+            }
+            int[] row = overrides.get(userId);
+            if (row == null) {
+                row = base.row(userId);
+            }
+            int pos = Arrays.binarySearch(row, friendId);
+            if (type == ADD && pos < 0) {
+                int insert = -pos - 1;
+                int[] updated = new int[row.length + 1];
+                System.arraycopy(row, 0, updated, 0, insert);
+                updated[insert] = friendId;
+                System.arraycopy(row, insert, updated, insert + 1, row.length - insert);
+                overrides.put(userId, updated);
+            } else if (type == REMOVE && pos >= 0) {
+                overrides.put(userId, without(row, friendId));
+            }
+        }
+
+        private static int[] without(int[] row, int value) {
+            int pos = Arrays.binarySearch(row, value);
+            if (pos < 0) {
+                return row;
+            }
+            int[] updated = new int[row.length - 1];
+            System.arraycopy(row, 0, updated, 0, pos);
+            System.arraycopy(row, pos + 1, updated, pos, row.length - pos - 1);
+            return updated;
+        }
+    }
+
+    private static final class Csr {
+        private static final Csr EMPTY = withTransposed(new int[]{0}, NO_FRIENDS);
+
+        private final int[] offsets;
+        private final int[] targets;
+        private final Csr transposed;
+
+        private Csr(int[] offsets, int[] targets, Csr transposed) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.transposed = transposed;
+        }
+
+        static Csr withTransposed(int[] offsets, int[] targets) {
+            int vertexCount = offsets.length - 1;
+            for (int target : targets) {
+                vertexCount = Math.max(vertexCount, target + 1);
+            }
+            int[] reverseOffsets = new int[vertexCount + 1];
+            for (int target : targets) {
+                reverseOffsets[target + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                reverseOffsets[v + 1] += reverseOffsets[v];
+            }
+            int[] reverseTargets = new int[targets.length];
+            int[] fill = Arrays.copyOf(reverseOffsets, vertexCount);
+            for (int v = 0; v < offsets.length - 1; v++) {
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    reverseTargets[fill[targets[i]]++] = v;
+                }
+            }
+            return new Csr(offsets, targets, new Csr(reverseOffsets, reverseTargets, null));
+        }
+
+        static Csr of(EdgeList edges) {
+            int vertexCount = 0;
+            for (int i = 0; i < edges.size; i++) {
+                vertexCount = Math.max(vertexCount, edges.sources[i] + 1);
+            }
+            int[] offsets = new int[vertexCount + 1];
+            for (int i = 0; i < edges.size; i++) {
+                offsets[edges.sources[i] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] targets = new int[edges.size];
+            int[] fill = Arrays.copyOf(offsets, vertexCount);
+            for (int i = 0; i < edges.size; i++) {
+                targets[fill[edges.sources[i]]++] = edges.targets[i];
+            }
+            int write = 0;
+            int[] compacted = new int[vertexCount + 1];
+            for (int v = 0; v < vertexCount; v++) {
+                Arrays.sort(targets, offsets[v], offsets[v + 1]);
+                compacted[v] = write;
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    if (i == offsets[v] || targets[i] != targets[i - 1]) {
+                        targets[write++] = targets[i];
+                    }
+                }
+            }
+            compacted[vertexCount] = write;
+            return withTransposed(compacted, write == targets.length ? targets : Arrays.copyOf(targets, write));
+        }
+
+        Csr merge(Map<Integer, int[]> overrides) {
+            int vertexCount = vertexCount();
+            for (Integer userId : overrides.keySet()) {
+                vertexCount = Math.max(vertexCount, userId + 1);
+            }
+            int[] newOffsets = new int[vertexCount + 1];
+            int edgeCount = 0;
+            for (int v = 0; v < vertexCount; v++) {
+                int[] row = overrides.get(v);
+                edgeCount += row != null ? row.length : to(v) - from(v);
+            }
+            int[] newTargets = new int[edgeCount];
+            int write = 0;
+            for (int v = 0; v < vertexCount; v++) {
+                newOffsets[v] = write;
+                int[] row = overrides.get(v);
+                int[] source = row != null ? row : targets;
+                int from = row != null ? 0 : from(v);
+                int to = row != null ? row.length : to(v);
+                System.arraycopy(source, from, newTargets, write, to - from);
+                write += to - from;
+            }
+            newOffsets[vertexCount] = write;
+            return withTransposed(newOffsets, newTargets);
+        }
+
+        int vertexCount() {
+            return offsets.length - 1;
+        }
+
+        int edgeCount() {
+            return targets.length;
+        }
+
+        int from(int userId) {
+            return userId >= 0 && userId < vertexCount() ? offsets[userId] : 0;
+        }
+
+        int to(int userId) {
+            return userId >= 0 && userId < vertexCount() ? offsets[userId + 1] : 0;
+        }
+
+        int[] row(int userId) {
+            return Arrays.copyOfRange(targets, from(userId), to(userId));
+        }
+    }
+
+    private static final class IntIntMap {
+        private int[] keys;
+        private int[] values;
+        private int size;
+
+        private IntIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+        }
+
+        private void increment(int key) {
+            int slot = slot(key);
+            put(slot, key, values[slot] + 1);
+        }
+
+        private void put(int key, int value) {
+            put(slot(key), key, value);
+        }
+
+        private int get(int key) {
+            return values[slot(key)];
+        }
+
+        private void put(int slot, int key, int value) {
+            boolean added = values[slot] == 0;
+            keys[slot] = key;
+            values[slot] = value;
+            if (added && ++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (values[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private int[] topKeys(int limit, IntUnaryOperator tieBreaker) {
+            long[] byCount = new long[size];
+            int next = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (values[slot] != 0) {
+                    byCount[next++] = ((long) -values[slot] << 32) | keys[slot];
+                }
+            }
+            Arrays.sort(byCount);
+            int selected = byCount.length;
+            if (selected > limit) {
+                int threshold = (int) (byCount[limit - 1] >> 32);
+                selected = limit;
+                while (selected < byCount.length && (int) (byCount[selected] >> 32) == threshold) {
+                    selected++;
+                }
+            }
+            int[] ids = new int[selected];
+            int[] counts = new int[selected];
+            int[] ties = new int[selected];
+            Integer[] order = new Integer[selected];
+            for (int i = 0; i < selected; i++) {
+                ids[i] = (int) byCount[i];
+                counts[i] = (int) -(byCount[i] >> 32);
+                ties[i] = tieBreaker.applyAsInt(ids[i]);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> counts[a] != counts[b] ? Integer.compare(counts[b], counts[a])
+                    : ties[a] != ties[b] ? Integer.compare(ties[b], ties[a]) : Integer.compare(ids[a], ids[b]));
+            int[] result = new int[Math.min(limit, selected)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ids[order[i]];
+            }
+            return result;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldValues[slot] != 0) {
+                    int target = mix(oldKeys[slot]) & mask;
+                    while (values[target] != 0) {
+                        target = (target + 1) & mask;
+                    }
+                    keys[target] = oldKeys[slot];
+                    values[target] = oldValues[slot];
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static final class EdgeList {
+        private int[] sources = new int[1024];
+        private int[] targets = new int[1024];
+        private int size;
+
+        void add(int source, int target) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+final class MinHashLsh {
+    private final int bands;
+    private final int rows;
+    private final int[] multipliers;
+    private final int[] increments;
+
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final Map<Long, IntSet> buckets = new HashMap<>();
+
+    MinHashLsh(int bands, int rows, long seed) {
+        this.bands = bands;
+        this.rows = rows;
+        SplittableRandom random = new SplittableRandom(seed);
+        multipliers = new int[bands * rows];
+        increments = new int[bands * rows];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextInt() | 1;
+            increments[i] = random.nextInt();
+        }
+    }
+
+    void clear() {
+        signatures.clear();
+        buckets.clear();
+    }
+
+    void add(int userId, int filmId) {
+        int[] old = signatures.get(userId);
+        int[] signature = old == null ? emptySignature() : old.clone();
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = Math.min(signature[i], hash(i, filmId));
+        }
+        replace(userId, old, signature);
+    }
+
+    void update(int userId, IntSet filmIds) {
+        int[] old = signatures.get(userId);
+        if (filmIds.isEmpty()) {
+            replace(userId, old, null);
+            return;
+        }
+        int[] signature = emptySignature();
+        filmIds.forEachInt(filmId -> {
+            for (int i = 0; i < signature.length; i++) {
+                signature[i] = Math.min(signature[i], hash(i, filmId));
+            }
+        });
+        replace(userId, old, signature);
+    }
+
+    void remove(int userId) {
+        replace(userId, signatures.get(userId), null);
+    }
+
+    IntSet candidates(int userId, int limit) {
+        IntSet found = new IntSet();
+        int[] signature = signatures.get(userId);
+        if (signature == null) {
+            return found;
+        }
+        for (int band = 0; band < bands && found.size() < limit; band++) {
+            IntSet bucket = buckets.get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            bucket.forEachInt(otherId -> {
+                if (otherId != userId && found.size() < limit) {
+                    found.add(otherId);
+                }
+            });
+        }
+        return found;
+    }
+
+    private void replace(int userId, int[] old, int[] signature) {
+        if (Arrays.equals(old, signature)) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            long oldKey = old == null ? 0 : bandKey(old, band);
+            long newKey = signature == null ? 0 : bandKey(signature, band);
+            if (old != null && signature != null && oldKey == newKey) {
+                continue;
+            }
+            if (old != null) {
+                IntSet bucket = buckets.get(oldKey);
+                if (bucket != null && bucket.remove(userId) && bucket.isEmpty()) {
+                    buckets.remove(oldKey);
+                }
+            }
+            if (signature != null) {
+                buckets.computeIfAbsent(newKey, key -> new IntSet()).add(userId);
+            }
+        }
+        if (signature == null) {
+            signatures.remove(userId);
+        } else {
+            signatures.put(userId, signature);
+        }
+    }
+
+    private int[] emptySignature() {
+        int[] signature = new int[bands * rows];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        int hash = 1;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            hash = 31 * hash + signature[i];
+        }
+        return ((long) band << 32) | (mix(hash) & 0xFFFFFFFFL);
+    }
+
+    private int hash(int function, int filmId) {
+        return mix(filmId * multipliers[function] + increments[function]);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
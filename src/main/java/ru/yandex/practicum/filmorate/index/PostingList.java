@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+final class PostingList {
+    private int[] ids = new int[4];
+    private int size;
+
+    boolean add(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+        return true;
+    }
+
+    boolean remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    int[] retainAll(int[] sorted) {
+        int[] result = new int[Math.min(size, sorted.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < sorted.length) {
+            if (ids[i] < sorted[j]) {
+                i++;
+            } else if (ids[i] > sorted[j]) {
+                j++;
+            } else {
+                result[count++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
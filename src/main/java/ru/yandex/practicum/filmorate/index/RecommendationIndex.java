@@ -0,0 +1,476 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.interfaces.RecommendationStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class RecommendationIndex {
+    private static final IntSet NO_LIKES = new IntSet();
+
+    private final RecommendationStorage recommendationStorage;
+    private final Similarity similarity;
+    private final int neighbours;
+    private final int maxCandidates;
+    private final MinHashLsh lsh;
+
+    private final Map<Integer, IntSet> userLikes = new HashMap<>();
+    private final Map<Integer, IntSet> filmLikes = new HashMap<>();
+    private final Map<Integer, Long> userVersions = new HashMap<>();
+    private long modifications;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RecommendationIndex(RecommendationStorage recommendationStorage,
+                               @Value("${filmorate.recommendations.similarity:jaccard}") String similarity,
+                               @Value("${filmorate.recommendations.neighbours:10}") int neighbours,
+                               @Value("${filmorate.recommendations.lsh.bands:20}") int bands,
+                               @Value("${filmorate.recommendations.lsh.rows:2}") int rows,
+                               @Value("${filmorate.recommendations.lsh.max-candidates:1000}") int maxCandidates) {
+        this.recommendationStorage = recommendationStorage;
+        this.similarity = Similarity.valueOf(similarity.trim().toUpperCase(Locale.ROOT));
+        this.neighbours = neighbours;
+        this.maxCandidates = maxCandidates;
+        this.lsh = new MinHashLsh(bands, rows, 42);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, IntSet> likes = recommendationStorage.getLikedFilmIdsByUser();
+        lock.writeLock().lock();
+        try {
+            userLikes.clear();
+            filmLikes.clear();
+            userVersions.clear();
+            lsh.clear();
+            likes.forEach((userId, filmIds) -> filmIds.forEachInt(filmId -> addLikeLocked(userId, filmId)));
+            userLikes.forEach(lsh::update);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс рекомендаций построен: пользователей {}, фильмов {}", userLikes.size(), filmLikes.size());
+    }
+
+    public void addLike(Integer userId, Integer filmId) {
+        lock.writeLock().lock();
+        try {
+            if (addLikeLocked(userId, filmId)) {
+                lsh.add(userId, filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(Integer userId, Integer filmId) {
+        lock.writeLock().lock();
+        try {
+            if (removeFrom(userLikes, userId, filmId)) {
+                removeFrom(filmLikes, filmId, userId);
+                lsh.update(userId, userLikes.getOrDefault(userId, NO_LIKES));
+                touch(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(Integer userId) {
+        lock.writeLock().lock();
+        try {
+            IntSet filmIds = userLikes.remove(userId);
+            userVersions.remove(userId);
+            lsh.remove(userId);
+            if (filmIds != null) {
+                filmIds.forEachInt(filmId -> removeFrom(filmLikes, filmId, userId));
+            }
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(Integer filmId) {
+        lock.writeLock().lock();
+        try {
+            IntSet userIds = filmLikes.remove(filmId);
+            if (userIds != null) {
+                userIds.forEachInt(userId -> {
+                    removeFrom(userLikes, userId, filmId);
+                    lsh.update(userId, userLikes.getOrDefault(userId, NO_LIKES));
+                    touch(userId);
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> recommend(Integer userId) {
+        return Arrays.stream(snapshot(userId).filmIds()).boxed().toList();
+    }
+
+    public List<Integer> recommendApproximate(Integer userId) {
+        lock.readLock().lock();
+        try {
+            IntSet liked = userLikes.getOrDefault(userId, NO_LIKES);
+            if (liked.isEmpty()) {
+                return List.of();
+            }
+            return Arrays.stream(score(liked, approximateNeighbours(userId, liked))).boxed().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Snapshot snapshot(Integer userId) {
+        lock.readLock().lock();
+        try {
+            long version = userVersions.getOrDefault(userId, 0L);
+            IntSet liked = userLikes.getOrDefault(userId, NO_LIKES);
+            if (liked.isEmpty()) {
+                return new Snapshot(version, new int[0], new int[0], new long[0]);
+            }
+            TopK closest = exactNeighbours(userId, liked);
+            int[] neighbourIds = Arrays.copyOf(closest.ids, closest.size);
+            long[] neighbourVersions = new long[closest.size];
+            for (int i = 0; i < closest.size; i++) {
+                neighbourVersions[i] = userVersions.getOrDefault(neighbourIds[i], 0L);
+            }
+            return new Snapshot(version, score(liked, closest), neighbourIds, neighbourVersions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isCurrent(Integer userId, Snapshot snapshot) {
+        lock.readLock().lock();
+        try {
+            if (snapshot.version() != userVersions.getOrDefault(userId, 0L)) {
+                return false;
+            }
+            for (int i = 0; i < snapshot.neighbourIds().length; i++) {
+                if (snapshot.neighbourVersions()[i] != userVersions.getOrDefault(snapshot.neighbourIds()[i], 0L)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasLikes(Integer userId) {
+        lock.readLock().lock();
+        try {
+            return userLikes.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] popularFilmIds(int count) {
+        lock.readLock().lock();
+        try {
+            TopK popular = new TopK(count);
+            filmLikes.forEach((filmId, userIds) -> popular.offer(filmId, userIds.size()));
+            return popular.sortedIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> commonFilmIds(Integer userId, Integer otherId) {
+        lock.readLock().lock();
+        try {
+            IntSet common = userLikes.getOrDefault(userId, NO_LIKES)
+                    .intersection(userLikes.getOrDefault(otherId, NO_LIKES));
+            long[] byPopularity = new long[common.size()];
+            int[] next = new int[1];
+            common.forEachInt(filmId -> byPopularity[next[0]++] =
+                    ((long) -filmLikes.get(filmId).size() << 32) | filmId);
+            Arrays.sort(byPopularity);
+            List<Integer> result = new ArrayList<>(byPopularity.length);
+            for (long key : byPopularity) {
+                result.add((int) key);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int commonLikeCount(Integer userId, Integer otherId) {
+        lock.readLock().lock();
+        try {
+            return userLikes.getOrDefault(userId, NO_LIKES)
+                    .intersectionSize(userLikes.getOrDefault(otherId, NO_LIKES));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long modifications() {
+        lock.readLock().lock();
+        try {
+            return modifications;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] userIds() {
+        lock.readLock().lock();
+        try {
+            return userLikes.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] score(IntSet liked, TopK closest) {
+        IntDoubleMap scores = new IntDoubleMap(64);
+        for (int i = 0; i < closest.size; i++) {
+            double weight = closest.scores[i];
+            userLikes.get(closest.ids[i]).forEachInt(filmId -> {
+                if (!liked.contains(filmId)) {
+                    scores.add(filmId, weight);
+                }
+            });
+        }
+        return scores.keysByValueDesc();
+    }
+
+    private TopK exactNeighbours(int userId, IntSet liked) {
+        IntDoubleMap common = new IntDoubleMap(liked.size() * 4);
+        liked.forEachInt(filmId -> filmLikes.getOrDefault(filmId, NO_LIKES).forEachInt(otherId -> {
+            if (otherId != userId) {
+                common.add(otherId, 1);
+            }
+        }));
+        TopK closest = new TopK(neighbours);
+        common.forEach((otherId, overlap) -> closest.offer(otherId,
+                similarity.score((int) overlap, liked.size(), userLikes.get(otherId).size())));
+        return closest;
+    }
+
+    private TopK approximateNeighbours(int userId, IntSet liked) {
+        TopK closest = new TopK(neighbours);
+        lsh.candidates(userId, maxCandidates).forEachInt(otherId -> {
+            IntSet otherLikes = userLikes.get(otherId);
+            int common = liked.intersectionSize(otherLikes);
+            if (common > 0) {
+                closest.offer(otherId, similarity.score(common, liked.size(), otherLikes.size()));
+            }
+        });
+        return closest;
+    }
+
+    private boolean addLikeLocked(int userId, int filmId) {
+        if (!userLikes.computeIfAbsent(userId, id -> new IntSet()).add(filmId)) {
+            return false;
+        }
+        filmLikes.computeIfAbsent(filmId, id -> new IntSet()).add(userId);
+        touch(userId);
+        return true;
+    }
+
+    private void touch(int userId) {
+        userVersions.put(userId, ++modifications);
+    }
+
+    private static boolean removeFrom(Map<Integer, IntSet> index, int key, int value) {
+        IntSet values = index.get(key);
+        if (values == null || !values.remove(value)) {
+            return false;
+        }
+        if (values.isEmpty()) {
+            index.remove(key);
+        }
+        return true;
+    }
+
+    public record Snapshot(long version, int[] filmIds, int[] neighbourIds, long[] neighbourVersions) {
+    }
+
+    public enum Similarity {
+        JACCARD {
+            @Override
+            double score(int common, int size, int otherSize) {
+                return (double) common / (size + otherSize - common);
+            }
+        },
+        COSINE {
+            @Override
+            double score(int common, int size, int otherSize) {
+                return common / Math.sqrt((double) size * otherSize);
+            }
+        };
+
+        abstract double score(int common, int size, int otherSize);
+    }
+
+    private static final class TopK {
+        private final int[] ids;
+        private final double[] scores;
+        private int size;
+
+        private TopK(int capacity) {
+            this.ids = new int[capacity];
+            this.scores = new double[capacity];
+        }
+
+        private void offer(int id, double score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (ids.length > 0 && better(id, score, 0)) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private int[] sortedIds() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> better(ids[a], scores[a], b) ? -1 : better(ids[b], scores[b], a) ? 1 : 0);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = ids[order[i]];
+            }
+            return result;
+        }
+
+        private boolean better(int id, double score, int slot) {
+            return score > scores[slot] || (score == scores[slot] && id < ids[slot]);
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (!better(ids[parent], scores[parent], slot)) {
+                    return;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int worst = slot;
+                for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                    if (better(ids[worst], scores[worst], child)) {
+                        worst = child;
+                    }
+                }
+                if (worst == slot) {
+                    return;
+                }
+                swap(slot, worst);
+                slot = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    private static final class IntDoubleMap {
+        private int[] keys;
+        private double[] values;
+        private boolean[] used;
+        private int size;
+
+        private IntDoubleMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            values = new double[capacity];
+            used = new boolean[capacity];
+        }
+
+        private void add(int key, double delta) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    grow();
+                    add(key, delta);
+                    return;
+                }
+            }
+            values[slot] += delta;
+        }
+
+        private void forEach(IntDoubleConsumer consumer) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    consumer.accept(keys[slot], values[slot]);
+                }
+            }
+        }
+
+        private int[] keysByValueDesc() {
+            Integer[] order = new Integer[size];
+            int next = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    order[next++] = slot;
+                }
+            }
+            Arrays.sort(order, (a, b) -> values[a] != values[b]
+                    ? Double.compare(values[b], values[a]) : Integer.compare(keys[a], keys[b]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = keys[order[i]];
+            }
+            return result;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot]) {
+                    add(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntDoubleConsumer {
+        void accept(int key, double value);
+    }
+}
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+import ru.yandex.practicum.filmorate.storage.interfaces.EventStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class TrendingFilmsIndex {
+    private static final long HOUR_MS = Duration.ofHours(1).toMillis();
+    private static final int BUCKETS = (int) Duration.ofDays(7).toHours();
+    private static final Set<FilmField> FACET_FIELDS = EnumSet.of(FilmField.ID, FilmField.RELEASE_DATE,
+            FilmField.GENRES);
+
+    private final FilmStorage filmStorage;
+    private final EventStorage eventStorage;
+    private final long refreshIntervalMs;
+
+    private final Map<Integer, int[]> hourlyLikes = new HashMap<>();
+    private final long[] bucketHours = new long[BUCKETS];
+    private final Map<Long, Long> likeHours = new HashMap<>();
+    private final Map<Integer, FilmFacets> facets = new ConcurrentHashMap<>();
+    private final Map<TrendingWindow, Ranking> rankings = new ConcurrentHashMap<>();
+    private long latestHour = Long.MIN_VALUE;
+    private volatile long version;
+
+    public TrendingFilmsIndex(FilmStorage filmStorage, EventStorage eventStorage,
+                              @Value("${filmorate.trending.refresh-interval-ms:1000}") long refreshIntervalMs) {
+        this.filmStorage = filmStorage;
+        this.eventStorage = eventStorage;
+        this.refreshIntervalMs = refreshIntervalMs;
+        Arrays.fill(bucketHours, Long.MIN_VALUE);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Set<Integer>> genreIds = filmStorage.getFilmGenreIds();
+        filmStorage.getFilmReleaseYears().forEach((filmId, year) -> {
+            int[] filmGenreIds = genreIds.getOrDefault(filmId, Set.of()).stream().mapToInt(Integer::intValue).toArray();
+            facets.put(filmId, new FilmFacets(year, filmGenreIds));
+        });
+        long from = System.currentTimeMillis() - BUCKETS * HOUR_MS;
+        List<Event> events = eventStorage.getEventsSince(EventType.LIKE, from);
+        events.forEach(this::record);
+        log.info("Рейтинг трендовых фильмов восстановлен по {} событиям", events.size());
+    }
+
+    public synchronized void record(Event event) {
+        if (event.getEventType() != EventType.LIKE) {
+            return;
+        }
+        long hour = event.getTimestamp() / HOUR_MS;
+        advanceTo(hour);
+        if (hour <= latestHour - BUCKETS) {
+            return;
+        }
+        int filmId = event.getEntityId();
+        long key = likeKey(filmId, event.getUserId());
+        if (event.getOperation() == Operation.ADD) {
+            if (likeHours.putIfAbsent(key, hour) == null) {
+                hourlyLikes.computeIfAbsent(filmId, id -> new int[BUCKETS])[slot(hour)]++;
+                version++;
+            }
+        } else if (event.getOperation() == Operation.REMOVE) {
+            Long addedHour = likeHours.remove(key);
+            int[] counts = hourlyLikes.get(filmId);
+            if (addedHour != null && counts != null && bucketHours[slot(addedHour)] == addedHour) {
+                counts[slot(addedHour)]--;
+                version++;
+            }
+        }
+    }
+
+    public synchronized void onFilmSaved(Film film) {
+        facets.put(film.getId(), FilmFacets.of(film));
+        version++;
+    }
+
+    public synchronized void removeFilm(Integer filmId) {
+        hourlyLikes.remove(filmId);
+        facets.put(filmId, FilmFacets.MISSING);
+        likeHours.keySet().removeIf(key -> (int) (key >>> 32) == filmId);
+        version++;
+    }
+
+    public synchronized void removeUser(Integer userId) {
+        Iterator<Map.Entry<Long, Long>> iterator = likeHours.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> entry = iterator.next();
+            if ((int) (long) entry.getKey() != userId) {
+                continue;
+            }
+            long addedHour = entry.getValue();
+            int[] counts = hourlyLikes.get((int) (entry.getKey() >>> 32));
+            if (counts != null && bucketHours[slot(addedHour)] == addedHour) {
+                counts[slot(addedHour)]--;
+            }
+            iterator.remove();
+            version++;
+        }
+    }
+
+    public List<Integer> topFilmIds(TrendingWindow window, Integer genreId, Integer year, int count) {
+        return topFilmIds(window, genreId, year, count, System.currentTimeMillis());
+    }
+
+    List<Integer> topFilmIds(TrendingWindow window, Integer genreId, Integer year, int count, long now) {
+        Ranking ranking = currentRanking(window, now);
+        int[] filmIds = ranking.filmIds();
+        if (genreId != null) {
+            filmIds = ranking.byGenre().getOrDefault(genreId, new int[0]);
+        } else if (year != null) {
+            filmIds = ranking.byYear().getOrDefault(year, new int[0]);
+        }
+        List<Integer> result = new ArrayList<>(Math.min(count, filmIds.length));
+        for (int i = 0; i < filmIds.length && result.size() < count; i++) {
+            int filmId = filmIds[i];
+            if (genreId == null || year == null || facets.get(filmId).year() == year) {
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    private Ranking currentRanking(TrendingWindow window, long now) {
+        long hour = now / HOUR_MS;
+        Ranking ranking = rankings.get(window);
+        if (ranking != null && ranking.hour() == hour
+            && (ranking.version() == version || now - ranking.builtAt() < refreshIntervalMs)) {
+            return ranking;
+        }
+        synchronized (this) {
+            advanceTo(hour);
+            ranking = buildRanking(window, hour, now);
+            rankings.put(window, ranking);
+            return ranking;
+        }
+    }
+
+    private Ranking buildRanking(TrendingWindow window, long hour, long now) {
+        long fromHour = hour - window.getDuration().toHours() + 1;
+        List<int[]> scored = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> entry : hourlyLikes.entrySet()) {
+            int score = 0;
+            int[] counts = entry.getValue();
+            for (int slot = 0; slot < BUCKETS; slot++) {
+                if (bucketHours[slot] >= fromHour && bucketHours[slot] <= hour) {
+                    score += counts[slot];
+                }
+            }
+            if (score > 0) {
+                scored.add(new int[]{entry.getKey(), score});
+            }
+        }
+        scored.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(a[0], b[0]));
+        int[] filmIds = scored.stream().mapToInt(pair -> pair[0]).toArray();
+        loadMissingFacets(filmIds);
+        Map<Integer, List<Integer>> byGenre = new HashMap<>();
+        Map<Integer, List<Integer>> byYear = new HashMap<>();
+        for (int filmId : filmIds) {
+            FilmFacets filmFacets = facets.get(filmId);
+            if (filmFacets == FilmFacets.MISSING) {
+                continue;
+            }
+            for (int genreId : filmFacets.genreIds()) {
+                byGenre.computeIfAbsent(genreId, id -> new ArrayList<>()).add(filmId);
+            }
+            byYear.computeIfAbsent(filmFacets.year(), id -> new ArrayList<>()).add(filmId);
+        }
+        return new Ranking(hour, version, now, filmIds, toArrays(byGenre), toArrays(byYear));
+    }
+
+    private static Map<Integer, int[]> toArrays(Map<Integer, List<Integer>> lists) {
+        Map<Integer, int[]> arrays = new HashMap<>(lists.size() * 2);
+        lists.forEach((key, ids) -> arrays.put(key, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return arrays;
+    }
+
+    private void advanceTo(long hour) {
+        if (hour <= latestHour) {
+            return;
+        }
+        long start = latestHour == Long.MIN_VALUE ? hour - BUCKETS + 1 : Math.max(latestHour + 1, hour - BUCKETS + 1);
+        for (long h = start; h <= hour; h++) {
+            int slot = slot(h);
+            for (int[] counts : hourlyLikes.values()) {
+                counts[slot] = 0;
+            }
+            bucketHours[slot] = h;
+        }
+        latestHour = hour;
+        long expiredHour = hour - BUCKETS;
+        likeHours.values().removeIf(addedHour -> addedHour <= expiredHour);
+        Iterator<Map.Entry<Integer, int[]>> iterator = hourlyLikes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, int[]> entry = iterator.next();
+            if (Arrays.stream(entry.getValue()).allMatch(count -> count == 0)) {
+                iterator.remove();
+            }
+        }
+        version++;
+    }
+
+    private void loadMissingFacets(int[] filmIds) {
+        List<Integer> missing = Arrays.stream(filmIds)
+                .filter(filmId -> !facets.containsKey(filmId))
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            filmStorage.findFilmsByIds(missing, FACET_FIELDS)
+                    .forEach(film -> facets.put(film.getId(), FilmFacets.of(film)));
+            missing.forEach(filmId -> facets.putIfAbsent(filmId, FilmFacets.MISSING));
+        }
+    }
+
+    private static int slot(long hour) {
+        return (int) Math.floorMod(hour, (long) BUCKETS);
+    }
+
+    private static long likeKey(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private record FilmFacets(int year, int[] genreIds) {
+        static final FilmFacets MISSING = new FilmFacets(0, new int[0]);
+
+        static FilmFacets of(Film film) {
+            int[] genreIds = film.getGenres() == null ? new int[0]
+                    : film.getGenres().stream().mapToInt(Genre::getId).toArray();
+            return new FilmFacets(film.getReleaseDate().getYear(), genreIds);
+        }
+    }
+
+    private record Ranking(long hour, long version, long builtAt, int[] filmIds,
+                           Map<Integer, int[]> byGenre, Map<Integer, int[]> byYear) {
+    }
+}
@@ -27,6 +27,8 @@ public class Film {
     @JsonProperty("mpa")
     private Rating rating;
     private Set<Genre> genres = new HashSet<>();
-    private Set<Integer> likes = new HashSet<>();
+    private IntSet likes = new IntSet();
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer likeCount = 0;
     private Set<Director> directors = new HashSet<>();
 }
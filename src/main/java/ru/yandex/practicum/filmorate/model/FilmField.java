@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Getter
+public enum FilmField {
+    ID("id"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    RELEASE_DATE("releaseDate"),
+    DURATION("duration"),
+    MPA("mpa"),
+    GENRES("genres"),
+    LIKES("likes"),
+    LIKE_COUNT("likeCount"),
+    DIRECTORS("directors");
+
+    public static final Set<FilmField> ALL = Collections.unmodifiableSet(EnumSet.allOf(FilmField.class));
+
+    private final String param;
+
+    FilmField(String param) {
+        this.param = param;
+    }
+
+    public static FilmField fromParam(String param) {
+        for (FilmField field : values()) {
+            if (field.param.equalsIgnoreCase(param)) {
+                return field;
+            }
+        }
+        throw new ValidationException("Некорректное поле фильма в fields: " + param);
+    }
+
+    public static Set<FilmField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<FilmField> parsed = EnumSet.noneOf(FilmField.class);
+        for (String param : fields.split(",")) {
+            if (!param.isBlank()) {
+                parsed.add(fromParam(param.trim()));
+            }
+        }
+        return parsed.isEmpty() ? ALL : parsed;
+    }
+
+    public static Set<String> params(Set<FilmField> fields) {
+        return fields.stream().map(FilmField::getParam).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+@JsonSerialize(using = IntSet.Serializer.class)
+public class IntSet extends AbstractSet<Integer> {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values;
+    private int size;
+
+    public IntSet() {
+        this.values = EMPTY;
+    }
+
+    public IntSet(int capacity) {
+        this.values = capacity == 0 ? EMPTY : new int[capacity];
+    }
+
+    public static IntSet of(int... values) {
+        IntSet set = new IntSet(values.length);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    public boolean add(int value) {
+        int pos;
+        if (size == 0 || values[size - 1] < value) {
+            pos = size;
+        } else {
+            pos = Arrays.binarySearch(values, 0, size, value);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = value;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains(((Integer) value).intValue());
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && remove(((Integer) value).intValue());
+    }
+
+    public boolean remove(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public int intersectionSize(IntSet other) {
+        int[] common = new int[1];
+        forEachCommon(other, value -> common[0]++);
+        return common[0];
+    }
+
+    public IntSet intersection(IntSet other) {
+        IntSet common = new IntSet(Math.min(size, other.size));
+        forEachCommon(other, value -> common.values[common.size++] = value);
+        return common;
+    }
+
+    private void forEachCommon(IntSet other, IntConsumer action) {
+        IntSet small = size <= other.size ? this : other;
+        IntSet large = small == this ? other : this;
+        if (small.size * 8 < large.size) {
+            for (int i = 0; i < small.size; i++) {
+                if (large.contains(small.values[i])) {
+                    action.accept(small.values[i]);
+                }
+            }
+            return;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < small.size && j < large.size) {
+            if (small.values[i] < large.values[j]) {
+                i++;
+            } else if (small.values[i] > large.values[j]) {
+                j++;
+            } else {
+                action.accept(small.values[i]);
+                i++;
+                j++;
+            }
+        }
+    }
+
+    public void forEachInt(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(values[i]);
+        }
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                removable = true;
+                return values[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (!removable) {
+                    throw new IllegalStateException();
+                }
+                removable = false;
+                next--;
+                System.arraycopy(values, next + 1, values, next, size - next - 1);
+                size--;
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash += values[i];
+        }
+        return hash;
+    }
+
+    public static class Serializer extends StdSerializer<IntSet> {
+        public Serializer() {
+            super(IntSet.class);
+        }
+
+        @Override
+        public void serialize(IntSet set, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeArray(set.values, 0, set.size);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Getter
+public class PageCursor {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final String sort;
+    private final long value;
+    private final int id;
+
+    public PageCursor(String sort, long value, int id) {
+        this.sort = sort;
+        this.value = value;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = sort + ":" + value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor, String expectedSort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length == 3 && parts[0].equals(expectedSort)) {
+                return new PageCursor(parts[0], Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+        throw new ValidationException("Курсор не соответствует сортировке " + expectedSort);
+    }
+
+    public static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+}
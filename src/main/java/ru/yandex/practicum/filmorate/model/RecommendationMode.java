@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+@Getter
+public enum RecommendationMode {
+    EXACT("exact"),
+    APPROXIMATE("approximate");
+
+    private final String param;
+
+    RecommendationMode(String param) {
+        this.param = param;
+    }
+
+    public static RecommendationMode fromParam(String param) {
+        for (RecommendationMode mode : values()) {
+            if (mode.param.equalsIgnoreCase(param)) {
+                return mode;
+            }
+        }
+        throw new ValidationException("Некорректный параметр mode: " + param);
+    }
+}
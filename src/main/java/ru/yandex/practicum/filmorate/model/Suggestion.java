@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class Suggestion {
+    private Integer id;
+    private String name;
+    private SuggestionType type;
+    private Integer likes;
+}
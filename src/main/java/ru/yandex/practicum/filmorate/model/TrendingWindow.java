@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.Duration;
+
+@Getter
+public enum TrendingWindow {
+    DAY("24h", Duration.ofHours(24)),
+    WEEK("7d", Duration.ofDays(7));
+
+    private final String param;
+    private final Duration duration;
+
+    TrendingWindow(String param, Duration duration) {
+        this.param = param;
+        this.duration = duration;
+    }
+
+    public static TrendingWindow fromParam(String param) {
+        for (TrendingWindow window : values()) {
+            if (window.param.equalsIgnoreCase(param)) {
+                return window;
+            }
+        }
+        throw new ValidationException("Некорректный параметр window: " + param);
+    }
+}
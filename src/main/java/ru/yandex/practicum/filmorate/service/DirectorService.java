@@ -2,15 +2,42 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestIndex;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.DirectorDbStorage;
 
 @Service
 public class DirectorService {
     private final DirectorDbStorage directorStorage;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
 
-    public DirectorService(DirectorDbStorage directorStorage) {
+    public DirectorService(DirectorDbStorage directorStorage, FilmSearchIndex filmSearchIndex,
+                           FilmSuggestIndex filmSuggestIndex) {
         this.directorStorage = directorStorage;
+        this.filmSearchIndex = filmSearchIndex;
+        this.filmSuggestIndex = filmSuggestIndex;
+    }
+
+    public Director addNewDirector(Director director) {
+        Director created = directorStorage.addNewDirector(director);
+        filmSearchIndex.putDirector(created);
+        filmSuggestIndex.putDirector(created);
+        return created;
+    }
+
+    public Director updateDirector(Director director) {
+        Director updated = directorStorage.updateDirector(director);
+        filmSearchIndex.putDirector(updated);
+        filmSuggestIndex.putDirector(updated);
+        return updated;
+    }
+
+    public void deleteDirector(Integer id) {
+        directorStorage.deleteDirector(id);
+        filmSearchIndex.removeDirector(id);
+        filmSuggestIndex.removeDirector(id);
     }
 
     public Director getDirectorByIdOrThrow(Integer id) {
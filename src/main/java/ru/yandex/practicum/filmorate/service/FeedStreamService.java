@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+public class FeedStreamService implements MeterBinder {
+    private static final String FEED_EVENT = "feed";
+
+    private final EventDbStorage eventDbStorage;
+    private final long timeoutMs;
+    private final int bufferSize;
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feed-stream-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FeedStreamService(EventDbStorage eventDbStorage,
+                             @Value("${filmorate.feed.stream.timeout-ms:1800000}") long timeoutMs,
+                             @Value("${filmorate.feed.stream.buffer-size:256}") int bufferSize,
+                             @Value("${filmorate.feed.stream.heartbeat-ms:30000}") long heartbeatMs) {
+        this.eventDbStorage = eventDbStorage;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(Integer userId, Integer lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        senders.execute(() -> replay(subscriber, lastEventId));
+        log.debug("Пользователь {} подписался на ленту событий, lastEventId = {}", userId, lastEventId);
+        return emitter;
+    }
+
+    @EventListener
+    public void onEvent(Event event) {
+        Set<Subscriber> userSubscribers = subscribers.get(event.getUserId());
+        if (userSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : userSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.feed.stream.subscribers", this, FeedStreamService::subscriberCount)
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(s -> s.emitter.complete()));
+        subscribers.clear();
+        senders.shutdown();
+    }
+
+    private void replay(Subscriber subscriber, Integer lastEventId) {
+        try {
+            if (lastEventId != null) {
+                List<Event> missed = eventDbStorage.getEventsAfter(subscriber.userId, lastEventId);
+                for (Event event : missed) {
+                    subscriber.send(event);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            subscriber.close(e);
+            return;
+        }
+        subscriber.replaying = false;
+        subscriber.scheduleDrain();
+    }
+
+    private void sendHeartbeats() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(Subscriber::heartbeat));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+            userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    private final class Subscriber {
+        private final Integer userId;
+        private final SseEmitter emitter;
+        private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean pingPending = new AtomicBoolean();
+        private volatile boolean replaying = true;
+        private volatile boolean closed;
+        private int lastSentId;
+
+        private Subscriber(Integer userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Event event) {
+            if (closed) {
+                return;
+            }
+            if (queued.incrementAndGet() > bufferSize) {
+                log.warn("Подписчик ленты пользователя {} не успевает читать события, соединение закрыто", userId);
+                close(null);
+                return;
+            }
+            queue.add(event);
+            scheduleDrain();
+        }
+
+        private void heartbeat() {
+            if (!closed && pingPending.compareAndSet(false, true)) {
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (!replaying && !closed && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    if (pingPending.compareAndSet(true, false)) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                    Event event;
+                    while (!closed && (event = queue.poll()) != null) {
+                        queued.decrementAndGet();
+                        if (event.getEventId() > lastSentId) {
+                            send(event);
+                        }
+                    }
+                    draining.set(false);
+                } while (!closed && (!queue.isEmpty() || pingPending.get()) && draining.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                close(e);
+            }
+        }
+
+        private void send(Event event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getEventId()))
+                    .name(FEED_EVENT)
+                    .data(event, MediaType.APPLICATION_JSON));
+            lastSentId = Math.max(lastSentId, event.getEventId());
+        }
+
+        private void close(Throwable error) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unsubscribe(this);
+            queue.clear();
+            if (error == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(error);
+            }
+        }
+    }
+}
@@ -3,15 +3,24 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.index.TrendingFilmsIndex;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.PageCursor;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.model.event.EventType;
 import ru.yandex.practicum.filmorate.model.event.Operation;
 import ru.yandex.practicum.filmorate.storage.EventDbStorage;
 import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
+import java.util.*;
 
 @Slf4j
 @Service
@@ -19,64 +28,168 @@ public class FilmService {
     private final UserService userService;
     private final FilmDbStorage filmStorage;
     private final EventDbStorage eventDbStorage;
+    private final TrendingFilmsIndex trendingFilmsIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
+    private final RecommendationIndex recommendationIndex;
 
-    public FilmService(UserService userService, FilmDbStorage filmStorage, EventDbStorage eventDbStorage) {
+    public FilmService(UserService userService, FilmDbStorage filmStorage, EventDbStorage eventDbStorage,
+                       TrendingFilmsIndex trendingFilmsIndex, FilmSearchIndex filmSearchIndex,
+                       FilmSuggestIndex filmSuggestIndex, RecommendationIndex recommendationIndex) {
         this.userService = userService;
         this.filmStorage = filmStorage;
         this.eventDbStorage = eventDbStorage;
+        this.trendingFilmsIndex = trendingFilmsIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.filmSuggestIndex = filmSuggestIndex;
+        this.recommendationIndex = recommendationIndex;
     }
 
-    public List<Film> getAllFilmsByDirector(Integer directorId, String sortBy) {
+    public Film addNewFilm(Film film) {
+        Film created = filmStorage.addNewFilm(film);
+        trendingFilmsIndex.onFilmSaved(created);
+        filmSearchIndex.putFilm(created);
+        filmSuggestIndex.putFilm(created);
+        return created;
+    }
+
+    public Film updateFilm(Film newFilm) {
+        Film updated = filmStorage.updateFilm(newFilm);
+        trendingFilmsIndex.onFilmSaved(updated);
+        filmSearchIndex.putFilm(updated);
+        filmSuggestIndex.putFilm(updated);
+        return updated;
+    }
+
+    public List<Film> getAllFilmsByDirector(Integer directorId, String sortBy, Set<FilmField> fields) {
+        if ("likes".equalsIgnoreCase(sortBy)) {
+            return filmStorage.getFilmsByDirectorSortedByLikes(directorId, fields);
+        } else if ("year".equalsIgnoreCase(sortBy)) {
+            return filmStorage.getFilmsByDirectorSortedByYears(directorId, fields);
+        } else {
+            throw new IllegalArgumentException("Некорректный параметр сортировки: " + sortBy);
+        }
+    }
+
+    public Page<Film> getFilmsPage(String after, Integer limit, Set<FilmField> fields) {
+        int size = PageCursor.pageSize(limit);
+        PageCursor cursor = after == null ? null : PageCursor.decode(after, "id");
+        List<Film> films = filmStorage.getFilmsAfter(cursor == null ? null : cursor.getId(), size, fields);
+        String next = null;
+        if (films.size() == size) {
+            next = new PageCursor("id", 0, films.getLast().getId()).encode();
+        }
+        return new Page<>(films, next);
+    }
+
+    public Page<Film> getFilmsByDirectorPage(Integer directorId, String sortBy, String after, Integer limit,
+                                             Set<FilmField> fields) {
+        int size = PageCursor.pageSize(limit);
+        List<Film> films;
+        PageCursor cursor;
         if ("likes".equalsIgnoreCase(sortBy)) {
-            return filmStorage.getFilmsByDirectorSortedByLikes(directorId);
+            cursor = after == null ? null : PageCursor.decode(after, "likes");
+            films = filmStorage.getFilmsByDirectorSortedByLikesAfter(directorId,
+                    cursor == null ? null : (int) cursor.getValue(), cursor == null ? null : cursor.getId(), size,
+                    fields);
+            if (films.size() == size) {
+                Film last = films.getLast();
+                cursor = new PageCursor("likes", last.getLikeCount(), last.getId());
+            }
         } else if ("year".equalsIgnoreCase(sortBy)) {
-            return filmStorage.getFilmsByDirectorSortedByYears(directorId);
+            cursor = after == null ? null : PageCursor.decode(after, "year");
+            films = filmStorage.getFilmsByDirectorSortedByYearsAfter(directorId,
+                    cursor == null ? null : LocalDate.ofEpochDay(cursor.getValue()),
+                    cursor == null ? null : cursor.getId(), size, fields);
+            if (films.size() == size) {
+                Film last = films.getLast();
+                cursor = new PageCursor("year", last.getReleaseDate().toEpochDay(), last.getId());
+            }
         } else {
             throw new IllegalArgumentException("Некорректный параметр сортировки: " + sortBy);
         }
+        if (after == null && films.isEmpty()) {
+            throw new NotFoundException("Фильмы с режиссёром id= " + directorId + " не найдены.");
+        }
+        return new Page<>(films, films.size() == size ? cursor.encode() : null);
     }
 
-    public List<Film> searchFilm(String query, String by) {
+    public List<Film> searchFilm(String query, String by, boolean fuzzy, Set<FilmField> fields) {
+        Set<Integer> filmIds;
         if ("title".equalsIgnoreCase(by)) {
-            return filmStorage.searchByTitle(query);
+            filmIds = filmSearchIndex.searchByTitle(query, fuzzy);
         } else if ("director".equalsIgnoreCase(by)) {
-            return filmStorage.searchByDirector(query);
+            filmIds = filmSearchIndex.searchByDirector(query, fuzzy);
         } else if (("title,director".equalsIgnoreCase(by)) || "director,title".equalsIgnoreCase(by)) {
-            return filmStorage.searchByTitleAndDirector(query);
+            filmIds = new HashSet<>(filmSearchIndex.searchByTitle(query, fuzzy));
+            filmIds.addAll(filmSearchIndex.searchByDirector(query, fuzzy));
         } else {
             throw new IllegalArgumentException("Некорректный параметр: " + by);
         }
+        return sortByLikes(filmStorage.findFilmsByIds(new ArrayList<>(filmIds), fields));
+    }
+
+    public List<Suggestion> suggest(String prefix, int count) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не должен быть пустым");
+        }
+        if (count <= 0) {
+            throw new ValidationException("Count должен быть положительным числом");
+        }
+        return filmSuggestIndex.suggest(prefix, count);
     }
 
     public void addLike(Integer filmId, Integer userId) {
-        Film film = getFilmByIdOrThrow(filmId);
+        checkFilmExists(filmId);
         userService.findUser(userId);
-        filmStorage.addLike(filmId, userId);
-        log.info("Пользователь {} поставил лайк фильму {}", userId, film.getName());
-        eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, filmId);
+        if (filmStorage.addLike(filmId, userId)) {
+            filmSuggestIndex.onLikeChanged(filmId, 1);
+            recommendationIndex.addLike(userId, filmId);
+        }
+        log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        trendingFilmsIndex.record(eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, filmId));
     }
 
     public void deleteLike(Integer filmId, Integer userId) {
-        Film film = getFilmByIdOrThrow(filmId);
+        checkFilmExists(filmId);
         userService.findUser(userId);
-        filmStorage.deleteLike(filmId, userId);
-        log.info("Пользователь {} убрал лайк у фильма {}", userId, film.getName());
-        eventDbStorage.addEvent(EventType.LIKE, Operation.REMOVE, userId, filmId);
+        if (filmStorage.deleteLike(filmId, userId)) {
+            filmSuggestIndex.onLikeChanged(filmId, -1);
+            recommendationIndex.removeLike(userId, filmId);
+        }
+        log.info("Пользователь {} убрал лайк у фильма {}", userId, filmId);
+        trendingFilmsIndex.record(eventDbStorage.addEvent(EventType.LIKE, Operation.REMOVE, userId, filmId));
     }
 
     public void deleteFilmById(Integer filmId) {
-        getFilmByIdOrThrow(filmId);
+        checkFilmExists(filmId);
         filmStorage.deleteFilmById(filmId);
+        trendingFilmsIndex.removeFilm(filmId);
+        filmSearchIndex.removeFilm(filmId);
+        filmSuggestIndex.removeFilm(filmId);
+        recommendationIndex.removeFilm(filmId);
         log.info("Фильм {} удален", filmId);
     }
 
-    public List<Film> mostPopularFilms(int size, Integer genreId, Integer year) {
-        return filmStorage.getAllFilms().stream()
-                .filter(film -> genreId == null || film.getGenres().stream().anyMatch(g -> g.getId().equals(genreId)))
-                .filter(film -> year == null || film.getReleaseDate().getYear() == year)
-                .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed())
-                .limit(size)
-                .collect(Collectors.toList());
+    public List<Film> mostPopularFilms(int size, Integer genreId, Integer year, Set<FilmField> fields) {
+        if (size <= 0) {
+            throw new ValidationException("Count должен быть положительным числом");
+        }
+        return filmStorage.findMostPopularFilms(size, genreId, year, fields);
+    }
+
+    public List<Film> trendingFilms(int size, Integer genreId, Integer year, TrendingWindow window,
+                                    Set<FilmField> fields) {
+        if (size <= 0) {
+            throw new ValidationException("Count должен быть положительным числом");
+        }
+        return filmStorage.findFilmsByIds(trendingFilmsIndex.topFilmIds(window, genreId, year, size), fields);
+    }
+
+    private static List<Film> sortByLikes(List<Film> films) {
+        films.sort(Comparator.comparingInt(Film::getLikeCount).reversed()
+                .thenComparing(Film::getId));
+        return films;
     }
 
     public Film getFilmByIdOrThrow(Integer filmId) {
@@ -84,16 +197,16 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("Фильм с ID " + filmId + " не найден"));
     }
 
+    public void checkFilmExists(Integer filmId) {
+        if (!filmStorage.existsById(filmId)) {
+            throw new NotFoundException("Фильм с ID " + filmId + " не найден");
+        }
+    }
+
     public List<Film> getCommonFilmsWithFriend(Integer userId, Integer friendId) {
         userService.findUser(userId);
         userService.findUser(friendId);
-        if (userService.findUser(userId) == null) {
-            throw new NotFoundException("Пользователь не найден");
-        }
-        if (userService.findUser(friendId) == null) {
-            throw new NotFoundException("Друг пользователя не найден");
-        }
-        return filmStorage.getCommonFilmsWithFriend(userId, friendId);
+        return filmStorage.findFilmsByIds(recommendationIndex.commonFilmIds(userId, friendId));
     }
 
 }
@@ -1,23 +1,46 @@
 package ru.yandex.practicum.filmorate.service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.RecommendationCache;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.interfaces.RecommendationStorage;
 
+import java.util.Arrays;
 import java.util.List;
 
 @Service
 public class RecommendationService {
     private final RecommendationStorage recommendationStorage;
+    private final FilmStorage filmStorage;
+    private final RecommendationCache recommendationCache;
+    private final RecommendationIndex recommendationIndex;
     private final UserService userService;
+    private final boolean inMemory;
 
-    public RecommendationService(RecommendationStorage recommendationStorage, UserService userService) {
+    public RecommendationService(RecommendationStorage recommendationStorage, FilmStorage filmStorage,
+                                 RecommendationCache recommendationCache, RecommendationIndex recommendationIndex,
+                                 UserService userService,
+                                 @Value("${filmorate.recommendations.in-memory:true}") boolean inMemory) {
         this.recommendationStorage = recommendationStorage;
+        this.filmStorage = filmStorage;
+        this.recommendationCache = recommendationCache;
+        this.recommendationIndex = recommendationIndex;
         this.userService = userService;
+        this.inMemory = inMemory;
     }
 
-    public List<Film> getRecommendedFilms(Integer userId) {
+    public List<Film> getRecommendedFilms(Integer userId, RecommendationMode mode) {
         userService.findUser(userId);
-        return recommendationStorage.getRecommendedFilms(userId);
+        if (mode == RecommendationMode.APPROXIMATE) {
+            return filmStorage.findFilmsByIds(recommendationIndex.recommendApproximate(userId));
+        }
+        if (!inMemory) {
+            return recommendationStorage.getRecommendedFilms(userId);
+        }
+        return filmStorage.findFilmsByIds(Arrays.stream(recommendationCache.get(userId)).boxed().toList());
     }
 }
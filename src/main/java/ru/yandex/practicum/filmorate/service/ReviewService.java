@@ -27,7 +27,7 @@ public class ReviewService {
 
     public Review addReview(Review review) {
         userService.findUser(review.getUserId());
-        filmService.getFilmByIdOrThrow(review.getFilmId());
+        filmService.checkFilmExists(review.getFilmId());
         Review newReview = reviewStorage.addReview(review);
         eventDbStorage.addEvent(EventType.REVIEW, Operation.ADD, review.getUserId(), newReview.getReviewId());
         return newReview;
@@ -52,7 +52,7 @@ public class ReviewService {
     }
 
     public List<Review> getFilmReviews(Integer filmId, Integer count) {
-        filmService.getFilmByIdOrThrow(filmId);
+        filmService.checkFilmExists(filmId);
         return reviewStorage.getFilmReviews(filmId, count);
     }
 
@@ -71,7 +71,7 @@ public class ReviewService {
             throw new ValidationException("Field 'isPositive' is required");
         }
         userService.findUser(review.getUserId());
-        filmService.getFilmByIdOrThrow(review.getFilmId());
+        filmService.checkFilmExists(review.getFilmId());
     }
 
     public void addLike(Integer reviewId, Integer userId) {
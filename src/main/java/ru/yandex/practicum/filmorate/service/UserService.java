@@ -1,8 +1,16 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.index.FriendshipGraph;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.index.TrendingFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.event.Event;
 import ru.yandex.practicum.filmorate.model.event.EventType;
@@ -12,16 +20,33 @@ import ru.yandex.practicum.filmorate.storage.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.EventDbStorage;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class UserService {
     private final UserDbStorage userStorage;
     private final EventDbStorage eventDbStorage;
+    private final RecommendationIndex recommendationIndex;
+    private final FriendshipGraph friendshipGraph;
+    private final TrendingFilmsIndex trendingFilmsIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
+    private final int suggestionsDefaultLimit;
+    private final int suggestionsMaxLimit;
 
-    public UserService(UserDbStorage userStorage, EventDbStorage eventDbStorage) {
+    public UserService(UserDbStorage userStorage, EventDbStorage eventDbStorage,
+                       RecommendationIndex recommendationIndex, FriendshipGraph friendshipGraph,
+                       TrendingFilmsIndex trendingFilmsIndex, FilmSuggestIndex filmSuggestIndex,
+                       @Value("${filmorate.friends.suggestions.default-limit:10}") int suggestionsDefaultLimit,
+                       @Value("${filmorate.friends.suggestions.max-limit:100}") int suggestionsMaxLimit) {
         this.userStorage = userStorage;
         this.eventDbStorage = eventDbStorage;
+        this.recommendationIndex = recommendationIndex;
+        this.friendshipGraph = friendshipGraph;
+        this.trendingFilmsIndex = trendingFilmsIndex;
+        this.filmSuggestIndex = filmSuggestIndex;
+        this.suggestionsDefaultLimit = suggestionsDefaultLimit;
+        this.suggestionsMaxLimit = suggestionsMaxLimit;
     }
 
     public void addFriend(Integer userId, Integer friendId) {
@@ -30,7 +55,9 @@ public class UserService {
         User friend = userStorage.findById(friendId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + friendId + " не найден."));
 
-        userStorage.addFriend(userId, friendId);
+        if (!friendshipGraph.isFriend(userId, friendId) && userStorage.addFriend(userId, friendId)) {
+            friendshipGraph.addFriend(userId, friendId);
+        }
         eventDbStorage.addEvent(EventType.FRIEND, Operation.ADD, userId, friendId);
         log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
     }
@@ -42,6 +69,7 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + friendId + " не найден."));
 
         userStorage.removeFriend(userId, friendId);
+        friendshipGraph.removeFriend(userId, friendId);
         eventDbStorage.addEvent(EventType.FRIEND, Operation.REMOVE, userId, friendId);
         log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
     }
@@ -49,11 +77,48 @@ public class UserService {
     public List<User> findAllFriends(Integer userId) {
         User user = userStorage.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден."));
-        return userStorage.findAllFriends(userId);
+        return userStorage.findUsersByIds(toList(friendshipGraph.friendsOf(userId)));
     }
 
     public List<User> findCommonFriends(Integer userId, Integer otherId) {
-        return userStorage.findCommonFriends(userId, otherId);
+        return userStorage.findUsersByIds(toList(friendshipGraph.commonFriends(userId, otherId)));
+    }
+
+    public List<User> findFriendSuggestions(Integer userId, Integer limit) {
+        findUser(userId);
+        int size = limit == null ? suggestionsDefaultLimit : limit;
+        if (size <= 0 || size > suggestionsMaxLimit) {
+            throw new ValidationException("Limit должен быть от 1 до " + suggestionsMaxLimit);
+        }
+        int[] suggested = friendshipGraph.suggestions(userId, size,
+                candidateId -> recommendationIndex.commonLikeCount(userId, candidateId));
+        return userStorage.findUsersByIds(toList(suggested));
+    }
+
+    public List<User> findFriendshipPath(Integer userId, Integer otherId, Integer maxDepth) {
+        findUser(userId);
+        findUser(otherId);
+        int depth = maxDepth == null ? friendshipGraph.maxPathDepth() : maxDepth;
+        if (depth <= 0 || depth > friendshipGraph.maxPathDepth()) {
+            throw new ValidationException("maxDepth должен быть от 1 до " + friendshipGraph.maxPathDepth());
+        }
+        int[] path = friendshipGraph.shortestPath(userId, otherId, depth);
+        if (path.length == 0) {
+            throw new NotFoundException("Цепочка дружбы между пользователями " + userId + " и " + otherId
+                                        + " не найдена.");
+        }
+        return userStorage.findUsersByIds(toList(path));
+    }
+
+    public Page<User> getUsersPage(String after, Integer limit) {
+        int size = PageCursor.pageSize(limit);
+        PageCursor cursor = after == null ? null : PageCursor.decode(after, "id");
+        List<User> users = userStorage.getUsersAfter(cursor == null ? null : cursor.getId(), size);
+        String next = null;
+        if (users.size() == size) {
+            next = new PageCursor("id", 0, users.getLast().getId()).encode();
+        }
+        return new Page<>(users, next);
     }
 
     public User findUser(Integer userId) {
@@ -67,9 +132,35 @@ public class UserService {
         return eventDbStorage.getEventFeed(user.getId());
     }
 
+    public Page<Event> getEventFeedPage(Integer userId, String before, Integer limit) {
+        findUser(userId);
+        int size = PageCursor.pageSize(limit);
+        PageCursor cursor = before == null ? null : PageCursor.decode(before, "event");
+        List<Event> events = eventDbStorage.getFeedBefore(userId, cursor == null ? null : cursor.getId(), size);
+        String next = null;
+        if (events.size() == size) {
+            next = new PageCursor("event", 0, events.getLast().getEventId()).encode();
+        }
+        return new Page<>(events, next);
+    }
+
+    public void forEachFeedEvent(Integer userId, Consumer<Event> consumer) {
+        eventDbStorage.forEachFeedEvent(userId, consumer);
+    }
+
     public void deleteUserById(Integer userId) {
         findUser(userId);
-        userStorage.deleteUserById(userId);
+        eventDbStorage.flush();
+        List<Integer> likedFilmIds = userStorage.deleteUserById(userId);
+        likedFilmIds.forEach(filmId -> filmSuggestIndex.onLikeChanged(filmId, -1));
+        eventDbStorage.evictUser(userId);
+        recommendationIndex.removeUser(userId);
+        friendshipGraph.removeUser(userId);
+        trendingFilmsIndex.removeUser(userId);
         log.info("Пользователь {} удалён", userId);
     }
+
+    private static List<Integer> toList(int[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
 }
\ No newline at end of file
@@ -1,15 +1,16 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.Data;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.interfaces.DirectorStorage;
-import ru.yandex.practicum.filmorate.storage.mappers.DirectorRowMapper;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
@@ -20,10 +21,10 @@ import java.util.Optional;
 @Repository
 public class DirectorDbStorage implements DirectorStorage {
     private final JdbcTemplate jdbcTemplate;
-    private final DirectorRowMapper directorRowMapper;
-    private static String FIND_ALL_DIRECTORS = "SELECT * FROM director";
-    private static String FIND_DIRECTOR_BY_ID = "SELECT * FROM director WHERE director_id = ?";
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmCache filmCache;
     private static String UPDATE = "UPDATE director SET name = ? WHERE director_id = ?";
+    private static final String FIND_FILM_IDS_OF_DIRECTOR = "SELECT film_id FROM film_director WHERE director_id = ?";
     private static final String DELETE_DIRECTOR_FILM_LINKS = "DELETE FROM film_director WHERE director_id = ?";
     private static String DELETE_DIRECTOR = "DELETE FROM director WHERE director_id = ?";
     private static final String INSERT_NEW_DIRECTOR = "INSERT INTO director(name) " +
@@ -31,17 +32,12 @@ public class DirectorDbStorage implements DirectorStorage {
 
     @Override
     public List<Director> getAllDirectors() {
-        return jdbcTemplate.query(FIND_ALL_DIRECTORS, directorRowMapper);
+        return referenceDataCache.getDirectors();
     }
 
     @Override
     public Optional<Director> findById(Integer id) {
-        try {
-            Director result = jdbcTemplate.queryForObject(FIND_DIRECTOR_BY_ID, directorRowMapper, id);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        return referenceDataCache.findDirector(id);
     }
 
     @Override
@@ -56,6 +52,7 @@ public class DirectorDbStorage implements DirectorStorage {
         Number key = keyHolder.getKey();
         if (key != null) {
             director.setId(key.intValue());
+            referenceDataCache.putDirector(director);
             return director;
         } else {
             throw new InternalServerException("Не удалось сохранить данные");
@@ -63,17 +60,27 @@ public class DirectorDbStorage implements DirectorStorage {
     }
 
     @Override
+    @Transactional
     public Director updateDirector(Director newDirector) {
         int rowUpdated = jdbcTemplate.update(UPDATE, newDirector.getName(), newDirector.getId());
         if (rowUpdated == 0) {
             throw new NotFoundException("Режиссер с " + newDirector.getId() + " не найден.");
         }
+        referenceDataCache.putDirector(newDirector);
+        filmCache.invalidateAll(findFilmIdsOfDirector(newDirector.getId()));
         return newDirector;
     }
 
     @Override
+    @Transactional
     public void deleteDirector(Integer id) {
+        filmCache.invalidateAll(findFilmIdsOfDirector(id));
         jdbcTemplate.update(DELETE_DIRECTOR_FILM_LINKS, id);
         jdbcTemplate.update(DELETE_DIRECTOR, id);
+        referenceDataCache.removeDirector(id);
+    }
+
+    private List<Integer> findFilmIdsOfDirector(Integer directorId) {
+        return jdbcTemplate.queryForList(FIND_FILM_IDS_OF_DIRECTOR, Integer.class, directorId);
     }
 }
@@ -0,0 +1,322 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@Component
+public class EventArchive {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".csv.gz";
+    private static final Comparator<Event> BY_USER_AND_ID = Comparator.comparing(Event::getUserId)
+            .thenComparing(Event::getEventId);
+
+    private final Path directory;
+    private final boolean clearOnStart;
+    private final int segmentEvents;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Object segmentsLock = new Object();
+    private long nextSequence;
+
+    public EventArchive(@Value("${filmorate.events.archive.dir:./db/event-archive}") Path directory,
+                        @Value("${filmorate.events.archive.clear-on-start:true}") boolean clearOnStart,
+                        @Value("${filmorate.events.archive.segment-events:100000}") int segmentEvents) {
+        this.directory = directory;
+        this.clearOnStart = clearOnStart;
+        this.segmentEvents = segmentEvents;
+    }
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        Files.createDirectories(directory);
+        synchronized (segmentsLock) {
+            segments.clear();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX) || clearOnStart) {
+                    Files.delete(file);
+                    continue;
+                }
+                Segment segment = scan(file, sequenceOf(name));
+                synchronized (segmentsLock) {
+                    segments.add(segment);
+                }
+                nextSequence = Math.max(nextSequence, segment.sequence + 1);
+            }
+        }
+        log.info("Архив событий: сегментов {}, событий {}", segments.size(),
+                segments.stream().mapToInt(segment -> segment.count).sum());
+    }
+
+    public int maxEventId() {
+        return segments.stream().mapToInt(segment -> segment.maxEventId).max().orElse(0);
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized void append(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort(BY_USER_AND_ID);
+        Segment segment = write(sorted);
+        synchronized (segmentsLock) {
+            segments.add(segment);
+        }
+    }
+
+    public int forEachOfUserAfter(Integer userId, int afterId, Consumer<Event> consumer) {
+        int[] lastId = {afterId};
+        List<Segment> snapshot = acquire();
+        try {
+            for (Segment segment : snapshot) {
+                if (segment.maxEventId > lastId[0] && segment.userIds.contains(userId.intValue())) {
+                    segment.forEachOfUser(userId, event -> {
+                        if (event.getEventId() > lastId[0]) {
+                            lastId[0] = event.getEventId();
+                            consumer.accept(event);
+                        }
+                    });
+                }
+            }
+        } finally {
+            release(snapshot);
+        }
+        return lastId[0];
+    }
+
+    public List<Event> findByUserBefore(Integer userId, int beforeId, int limit) {
+        List<Segment> snapshot = acquire();
+        try {
+            List<Segment> candidates = snapshot.stream()
+                    .filter(segment -> segment.minEventId < beforeId && segment.userIds.contains(userId.intValue()))
+                    .sorted(Comparator.comparingInt((Segment segment) -> segment.maxEventId).reversed())
+                    .toList();
+            TreeMap<Integer, Event> found = new TreeMap<>(Comparator.reverseOrder());
+            for (Segment segment : candidates) {
+                if (found.size() >= limit && segment.maxEventId < nthKey(found, limit)) {
+                    break;
+                }
+                segment.forEachOfUser(userId, event -> {
+                    if (event.getEventId() < beforeId) {
+                        found.put(event.getEventId(), event);
+                    }
+                });
+            }
+            return found.values().stream().limit(limit).toList();
+        } finally {
+            release(snapshot);
+        }
+    }
+
+    public synchronized void compact(IntPredicate userExists) {
+        List<Segment> group = new ArrayList<>();
+        int groupEvents = 0;
+        boolean dirty = false;
+        for (Segment segment : List.copyOf(segments)) {
+            if (!group.isEmpty() && groupEvents + segment.count > segmentEvents) {
+                rewrite(group, dirty, userExists);
+                group.clear();
+                groupEvents = 0;
+                dirty = false;
+            }
+            group.add(segment);
+            groupEvents += segment.count;
+            dirty |= segment.userIds.stream().anyMatch(userId -> !userExists.test(userId));
+        }
+        rewrite(group, dirty, userExists);
+    }
+
+    private void rewrite(List<Segment> group, boolean dirty, IntPredicate userExists) {
+        if (group.size() < 2 && !dirty) {
+            return;
+        }
+        List<Event> kept = new ArrayList<>();
+        for (Segment segment : group) {
+            segment.forEach(event -> {
+                if (userExists.test(event.getUserId())) {
+                    kept.add(event);
+                }
+            });
+        }
+        kept.sort(BY_USER_AND_ID);
+        Segment merged = kept.isEmpty() ? null : write(kept);
+        synchronized (segmentsLock) {
+            if (merged != null) {
+                segments.add(segments.indexOf(group.getFirst()), merged);
+            }
+            segments.removeAll(group);
+        }
+        release(group);
+        log.info("Архив событий: {} сегментов объединено, сохранено событий {}", group.size(), kept.size());
+    }
+
+    private List<Segment> acquire() {
+        synchronized (segmentsLock) {
+            List<Segment> snapshot = List.copyOf(segments);
+            snapshot.forEach(segment -> segment.references.incrementAndGet());
+            return snapshot;
+        }
+    }
+
+    private static void release(List<Segment> snapshot) {
+        for (Segment segment : snapshot) {
+            if (segment.references.decrementAndGet() == 0) {
+                try {
+                    Files.deleteIfExists(segment.path);
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить сегмент архива событий {}", segment.path, e);
+                }
+            }
+        }
+    }
+
+    private Segment write(List<Event> sorted) {
+        long sequence = nextSequence++;
+        Path target = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            GZIPOutputStream gzip = new GZIPOutputStream(file, 64 * 1024);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            for (Event event : sorted) {
+                writer.write(format(event));
+                writer.write('\n');
+            }
+            writer.flush();
+            gzip.finish();
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new InternalServerException("Не удалось записать сегмент архива событий: " + e.getMessage());
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new InternalServerException("Не удалось сохранить сегмент архива событий: " + e.getMessage());
+        }
+        Segment segment = new Segment(target, sequence);
+        sorted.forEach(segment::include);
+        return segment;
+    }
+
+    private static Segment scan(Path file, long sequence) {
+        Segment segment = new Segment(file, sequence);
+        segment.forEach(segment::include);
+        return segment;
+    }
+
+    private static long sequenceOf(String name) {
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int nthKey(TreeMap<Integer, Event> found, int n) {
+        return found.keySet().stream().skip(n - 1).findFirst().orElseThrow();
+    }
+
+    private static String format(Event event) {
+        return event.getEventId() + "," + event.getTimestamp() + "," + event.getUserId() + ","
+               + event.getEventType().name() + "," + event.getOperation().name() + "," + event.getEntityId();
+    }
+
+    private static Event parse(String line) {
+        String[] parts = line.split(",");
+        return Event.builder()
+                .eventId(Integer.parseInt(parts[0]))
+                .timestamp(Long.parseLong(parts[1]))
+                .userId(Integer.parseInt(parts[2]))
+                .eventType(EventType.valueOf(parts[3]))
+                .operation(Operation.valueOf(parts[4]))
+                .entityId(Integer.parseInt(parts[5]))
+                .build();
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long sequence;
+        private final IntSet userIds = new IntSet();
+        private final AtomicInteger references = new AtomicInteger(1);
+        private int minEventId = Integer.MAX_VALUE;
+        private int maxEventId;
+        private int count;
+
+        private Segment(Path path, long sequence) {
+            this.path = path;
+            this.sequence = sequence;
+        }
+
+        private void include(Event event) {
+            userIds.add(event.getUserId().intValue());
+            minEventId = Math.min(minEventId, event.getEventId());
+            maxEventId = Math.max(maxEventId, event.getEventId());
+            count++;
+        }
+
+        private void forEach(Consumer<Event> consumer) {
+            try (BufferedReader reader = open()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    consumer.accept(parse(line));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void forEachOfUser(Integer userId, Consumer<Event> consumer) {
+            try (BufferedReader reader = open()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int start = line.indexOf(',', line.indexOf(',') + 1) + 1;
+                    int lineUserId = Integer.parseInt(line, start, line.indexOf(',', start), 10);
+                    if (lineUserId == userId) {
+                        consumer.accept(parse(line));
+                    } else if (lineUserId > userId) {
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private BufferedReader open() throws IOException {
+            return new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(path), 64 * 1024), StandardCharsets.UTF_8));
+        }
+    }
+}
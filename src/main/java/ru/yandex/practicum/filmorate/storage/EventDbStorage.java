@@ -1,9 +1,11 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.RecentEventsCache;
 import ru.yandex.practicum.filmorate.model.event.Event;
 import ru.yandex.practicum.filmorate.model.event.EventType;
 import ru.yandex.practicum.filmorate.model.event.Operation;
@@ -11,30 +13,125 @@ import ru.yandex.practicum.filmorate.storage.interfaces.EventStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.EventRowMapper;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class EventDbStorage implements EventStorage {
+    private static final String FIND_FEED_AFTER =
+            "SELECT * FROM event WHERE user_id = ? AND event_id > ? ORDER BY event_id";
+    private static final String FIND_FEED_PAGE = """
+            SELECT * FROM event
+            WHERE user_id = ? AND event_id < ?
+            ORDER BY event_id DESC
+            LIMIT ?
+            """;
+    private static final String FIND_MAX_EVENT_ID = "SELECT COALESCE(MAX(event_id), 0) FROM event";
     private final JdbcTemplate jdbcTemplate;
     private final EventRowMapper eventRowMapper;
+    private final EventLogWriter eventLogWriter;
+    private final RecentEventsCache recentEventsCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EventArchive eventArchive;
+    private final AtomicInteger lastEventId = new AtomicInteger();
 
-    public void addEvent(EventType eventType, Operation operation, Integer userId, Integer entityId) {
-        long timestamp = Instant.now().toEpochMilli();
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("event")
-                .usingGeneratedKeyColumns("event_id");
+    @PostConstruct
+    public void init() {
+        lastEventId.set(Math.max(jdbcTemplate.queryForObject(FIND_MAX_EVENT_ID, Integer.class),
+                eventArchive.maxEventId()));
+    }
+
+    public Event addEvent(EventType eventType, Operation operation, Integer userId, Integer entityId) {
+        Event event = Event.builder()
+                .eventId(lastEventId.incrementAndGet())
+                .timestamp(Instant.now().toEpochMilli())
+                .userId(userId)
+                .eventType(eventType)
+                .operation(operation)
+                .entityId(entityId)
+                .build();
+        eventLogWriter.append(event);
+        recentEventsCache.append(event);
+        eventPublisher.publishEvent(event);
+        return event;
+    }
 
-        simpleJdbcInsert.execute(Map.of("timestamp", timestamp,
-                "user_id", userId,
-                "eventType", eventType.name(),
-                "operation", operation.name(),
-                "entity_id", entityId));
+    public void flush() {
+        eventLogWriter.flush();
     }
 
     public List<Event> getEventFeed(Integer userId) {
-        String sql = "SELECT * FROM event WHERE user_id = ? ORDER BY timestamp";
-        return jdbcTemplate.query(sql, eventRowMapper, userId);
+        return getEventsAfter(userId, 0);
+    }
+
+    public List<Event> getFeedBefore(Integer userId, Integer beforeId, int limit) {
+        List<Event> recent = recentEventsCache.get(userId, this::findLatestEvents).newestBefore(beforeId, limit);
+        if (recent != null) {
+            return recent;
+        }
+        return findNewestBefore(userId, beforeId == null ? Integer.MAX_VALUE : beforeId, limit);
+    }
+
+    public List<Event> getEventsAfter(Integer userId, Integer afterId) {
+        List<Event> events = new ArrayList<>();
+        forEachFeedEventAfter(userId, afterId, events::add);
+        return events;
+    }
+
+    public void evictUser(Integer userId) {
+        recentEventsCache.invalidate(userId);
+    }
+
+    private List<Event> findLatestEvents(Integer userId, int count) {
+        return findNewestBefore(userId, Integer.MAX_VALUE, count);
+    }
+
+    private List<Event> findNewestBefore(Integer userId, int beforeId, int limit) {
+        eventLogWriter.flush();
+        List<Event> events = jdbcTemplate.query(FIND_FEED_PAGE, eventRowMapper, userId, beforeId, limit);
+        if (events.size() == limit) {
+            return events;
+        }
+        Map<Integer, Event> merged = new TreeMap<>(Comparator.reverseOrder());
+        eventArchive.findByUserBefore(userId, beforeId, limit).forEach(event -> merged.put(event.getEventId(), event));
+        events.forEach(event -> merged.put(event.getEventId(), event));
+        return merged.values().stream().limit(limit).toList();
+    }
+
+    public void forEachFeedEvent(Integer userId, Consumer<Event> consumer) {
+        forEachFeedEventAfter(userId, 0, consumer);
+    }
+
+    private void forEachFeedEventAfter(Integer userId, int afterId, Consumer<Event> consumer) {
+        eventLogWriter.flush();
+        List<Event> hot = jdbcTemplate.query(FIND_FEED_AFTER, eventRowMapper, userId, afterId);
+        int firstHotId = hot.isEmpty() ? Integer.MAX_VALUE : hot.getFirst().getEventId();
+        Map<Integer, Event> tail = new TreeMap<>();
+        eventArchive.forEachOfUserAfter(userId, afterId, event -> {
+            if (event.getEventId() < firstHotId) {
+                consumer.accept(event);
+            } else {
+                tail.put(event.getEventId(), event);
+            }
+        });
+        if (tail.isEmpty()) {
+            hot.forEach(consumer);
+            return;
+        }
+        hot.forEach(event -> tail.put(event.getEventId(), event));
+        tail.values().forEach(consumer);
+    }
+
+    public List<Event> getEventsSince(EventType eventType, long fromTimestamp) {
+        eventLogWriter.flush();
+        String sql = "SELECT * FROM event WHERE eventType = ? AND timestamp >= ? ORDER BY event_id";
+        return jdbcTemplate.query(sql, eventRowMapper, eventType.name(), fromTimestamp);
     }
 
 }
\ No newline at end of file
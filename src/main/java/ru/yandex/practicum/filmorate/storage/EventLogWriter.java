@@ -0,0 +1,209 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.event.Event;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+public class EventLogWriter {
+    private static final String INSERT_EVENT = """
+            INSERT INTO event (event_id, timestamp, user_id, eventType, operation, entity_id)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int bufferCapacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMs;
+    private final long maxRetryBackoffNanos;
+
+    private final Queue<Event> buffer = new ConcurrentLinkedQueue<>();
+    private final Semaphore freeSlots;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final List<Event> failed = new ArrayList<>();
+    private int retryAttempt;
+    private long nextRetryAt;
+    private volatile boolean running;
+    private Thread writer;
+
+    public EventLogWriter(JdbcTemplate jdbcTemplate,
+                          @Value("${filmorate.events.buffer-capacity:10000}") int bufferCapacity,
+                          @Value("${filmorate.events.batch-size:500}") int batchSize,
+                          @Value("${filmorate.events.flush-interval-ms:50}") long flushIntervalMs,
+                          @Value("${filmorate.events.offer-timeout-ms:1000}") long offerTimeoutMs,
+                          @Value("${filmorate.events.max-retry-backoff-ms:30000}") long maxRetryBackoffMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bufferCapacity = bufferCapacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxRetryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxRetryBackoffMs);
+        this.freeSlots = new Semaphore(bufferCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+        flush(true);
+        if (failed.isEmpty() && buffer.isEmpty()) {
+            log.info("Журнал событий остановлен, буфер сброшен в базу");
+        } else {
+            log.error("Журнал событий остановлен, не записано событий: {}", failed.size() + buffer.size());
+        }
+    }
+
+    public void append(Event event) {
+        boolean acquired;
+        try {
+            acquired = freeSlots.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired || !running) {
+            if (acquired) {
+                freeSlots.release();
+            }
+            log.warn("Буфер событий недоступен, событие {} записывается синхронно", event.getEventId());
+            insert(event);
+            return;
+        }
+        buffer.add(event);
+        if (bufferCapacity - freeSlots.availablePermits() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public void flush() {
+        flush(false);
+    }
+
+    private void flush(boolean force) {
+        flushLock.lock();
+        try {
+            if (!failed.isEmpty() && (force || System.nanoTime() - nextRetryAt >= 0)) {
+                List<Event> retried = new ArrayList<>(failed);
+                failed.clear();
+                writeAndRelease(retried);
+            }
+            if (!failed.isEmpty()) {
+                return;
+            }
+            List<Event> batch = new ArrayList<>(batchSize);
+            Event event;
+            while ((event = buffer.poll()) != null) {
+                batch.add(event);
+                if (batch.size() == batchSize) {
+                    writeAndRelease(batch);
+                }
+            }
+            writeAndRelease(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Ошибка фоновой записи событий", e);
+            }
+        }
+    }
+
+    private void writeAndRelease(List<Event> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Event> rejected = write(batch);
+        freeSlots.release(batch.size() - rejected.size());
+        batch.clear();
+        if (rejected.isEmpty()) {
+            if (retryAttempt > 0) {
+                log.info("Запись событий восстановлена после {} попыток", retryAttempt);
+                retryAttempt = 0;
+            }
+            return;
+        }
+        failed.addAll(rejected);
+        retryAttempt++;
+        long backoff = Math.min(maxRetryBackoffNanos, flushIntervalNanos << Math.min(retryAttempt, 20));
+        nextRetryAt = System.nanoTime() + backoff;
+        log.error("Не записано событий: {}, повтор через {} мс (попытка {})",
+                failed.size(), TimeUnit.NANOSECONDS.toMillis(backoff), retryAttempt);
+    }
+
+    private List<Event> write(List<Event> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_EVENT, batch, batch.size(), EventLogWriter::setValues);
+            return List.of();
+        } catch (DataAccessException e) {
+            log.warn("Пакет из {} событий не записан, повтор по одному: {}", batch.size(), e.getMessage());
+        }
+        List<Event> rejected = new ArrayList<>();
+        for (Event event : batch) {
+            if (!rejected.isEmpty()) {
+                rejected.add(event);
+                continue;
+            }
+            try {
+                insert(event);
+            } catch (DataIntegrityViolationException e) {
+                log.error("Событие {} отклонено базой и не будет записано: {}", event, e.getMessage());
+            } catch (DataAccessException e) {
+                rejected.add(event);
+            }
+        }
+        return rejected;
+    }
+
+    private void insert(Event event) {
+        try {
+            jdbcTemplate.update(INSERT_EVENT, ps -> setValues(ps, event));
+        } catch (DuplicateKeyException e) {
+            log.debug("Событие {} уже записано", event.getEventId());
+        }
+    }
+
+    private static void setValues(PreparedStatement ps, Event event) throws SQLException {
+        ps.setInt(1, event.getEventId());
+        ps.setLong(2, event.getTimestamp());
+        ps.setInt(3, event.getUserId());
+        ps.setString(4, event.getEventType().name());
+        ps.setString(5, event.getOperation().name());
+        ps.setInt(6, event.getEntityId());
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.storage.mappers.EventRowMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class EventRetention {
+    private static final String FIND_OVERFULL_USERS = "SELECT user_id FROM event GROUP BY user_id HAVING COUNT(*) > ?";
+    private static final String FIND_LAST_EXPIRED_ID =
+            "SELECT event_id FROM event WHERE user_id = ? ORDER BY event_id DESC LIMIT 1 OFFSET ?";
+    private static final String FIND_EXPIRED_OF_USER =
+            "SELECT * FROM event WHERE user_id = ? AND event_id <= ? ORDER BY event_id LIMIT ?";
+    private static final String FIND_EXPIRED_BY_AGE =
+            "SELECT * FROM event WHERE timestamp < ? ORDER BY timestamp LIMIT ?";
+    private static final String DELETE_EVENTS = "DELETE FROM event WHERE event_id IN (%s)";
+    private static final String FIND_USER_IDS = "SELECT user_id FROM users ORDER BY user_id";
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EventRowMapper eventRowMapper;
+    private final EventLogWriter eventLogWriter;
+    private final EventArchive eventArchive;
+    private final Duration maxAge;
+    private final int maxEventsPerUser;
+    private final int batchSize;
+    private final long intervalMs;
+    private ScheduledExecutorService scheduler;
+
+    public EventRetention(JdbcTemplate jdbcTemplate, EventRowMapper eventRowMapper, EventLogWriter eventLogWriter,
+                          EventArchive eventArchive,
+                          @Value("${filmorate.events.retention.max-age-days:30}") int maxAgeDays,
+                          @Value("${filmorate.events.retention.max-events-per-user:1000}") int maxEventsPerUser,
+                          @Value("${filmorate.events.retention.batch-size:100000}") int batchSize,
+                          @Value("${filmorate.events.retention.interval-ms:3600000}") long intervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventRowMapper = eventRowMapper;
+        this.eventLogWriter = eventLogWriter;
+        this.eventArchive = eventArchive;
+        this.maxAge = Duration.ofDays(maxAgeDays);
+        this.maxEventsPerUser = maxEventsPerUser;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (intervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveExpired();
+            } catch (RuntimeException e) {
+                log.error("Ошибка архивации событий", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public synchronized int archiveExpired() {
+        eventLogWriter.flush();
+        long cutoff = Instant.now().minus(maxAge).toEpochMilli();
+        List<Event> pending = new ArrayList<>();
+        int archived = 0;
+        for (Integer userId : jdbcTemplate.queryForList(FIND_OVERFULL_USERS, Integer.class, maxEventsPerUser)) {
+            Integer lastExpiredId = jdbcTemplate.queryForObject(FIND_LAST_EXPIRED_ID, Integer.class,
+                    userId, maxEventsPerUser);
+            List<Event> expired;
+            do {
+                expired = jdbcTemplate.query(FIND_EXPIRED_OF_USER, eventRowMapper, userId, lastExpiredId, batchSize);
+                pending.addAll(expired);
+                if (pending.size() >= batchSize) {
+                    archived += archive(pending);
+                }
+            } while (expired.size() == batchSize);
+        }
+        archived += archive(pending);
+        int found;
+        do {
+            found = archive(jdbcTemplate.query(FIND_EXPIRED_BY_AGE, eventRowMapper, cutoff, batchSize));
+            archived += found;
+        } while (found == batchSize);
+        IntSet userIds = new IntSet();
+        jdbcTemplate.query(FIND_USER_IDS, rs -> {
+            userIds.add(rs.getInt("user_id"));
+        });
+        eventArchive.compact(userIds::contains);
+        if (archived > 0) {
+            log.info("В архив перенесено событий: {}", archived);
+        }
+        return archived;
+    }
+
+    private int archive(List<Event> expired) {
+        int count = expired.size();
+        eventArchive.append(expired);
+        for (int from = 0; from < count; from += DELETE_BATCH_SIZE) {
+            List<Event> batch = expired.subList(from, Math.min(from + DELETE_BATCH_SIZE, count));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            jdbcTemplate.update(String.format(DELETE_EVENTS, placeholders),
+                    batch.stream().map(Event::getEventId).toArray());
+        }
+        expired.clear();
+        return count;
+    }
+}
@@ -1,33 +1,40 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.Data;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.mappers.DirectorRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
-import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
 
 import java.sql.*;
 import java.sql.Date;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Data
 @Repository
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
     private final FilmRowMapper filmRowMapper;
-    private final GenreRowMapper genreRowMapper;
-    private final DirectorRowMapper directorRowMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmCache filmCache;
     private static final String INSERT_NEW_FILM = "INSERT INTO film(name, description, duration,release_date,rating_id) " +
                                                   "VALUES (?, ?, ?, ?, ?)";
     private static final String INSERT_FILM_GENRE = "INSERT INTO film_genre(film_id, genre_id) VALUES (?, ?)";
@@ -36,84 +43,121 @@ public class FilmDbStorage implements FilmStorage {
     private static final String DELETE_FILM_DIRECTOR = "DELETE FROM film_director WHERE film_id = ?";
     private static final String UPDATE_FILM_GENRE = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
     private static final String UPDATE_FILM_DIRECTOR = "INSERT INTO film_director (film_id, director_id) VALUES (?, ?)";
-    private static final String FIND_GENRES_FILM_BY_ID = """
-            SELECT g.genre_id, g.name
-            FROM film_genre AS fg
-            JOIN genre AS g ON fg.genre_id = g.genre_id
-            WHERE fg.film_id = ?
-            ORDER BY g.genre_id
+    private static final String FIND_GENRES_FILM_BY_ID =
+            "SELECT genre_id FROM film_genre WHERE film_id = ? ORDER BY genre_id";
+    private static final String FIND_DIRECTORS_FILM_BY_ID = "SELECT director_id FROM film_director WHERE film_id = ?";
+    private static final String ADD_LIKE_FILM = """
+            INSERT INTO likes (film_id, user_id)
+            SELECT CAST(? AS INTEGER), CAST(? AS INTEGER)
+            WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)
             """;
-    private static final String FIND_DIRECTORS_FILM_BY_ID = """
-            SELECT d.director_id, d.name
+    private static final String DELETE_LIKE_FILM = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+    private static final String GET_LIKES_BY_FILM_ID = "SELECT user_id FROM likes WHERE film_id = ?";
+    private static final int ENRICH_BATCH_SIZE = 500;
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String FIND_DIRECTORS_OF_FILMS = """
+            SELECT 'D' AS kind, fd.film_id, fd.director_id AS ref_id
             FROM film_director AS fd
-            JOIN director AS d ON fd.director_id = d.director_id
-            WHERE fd.film_id = ?
+            WHERE fd.film_id IN (%1$s)
             """;
-    private static final String FIND_GENRES_FILMS = """
-            SELECT fg.film_id, g.genre_id, g.name
-            FROM film_genre fg
-            JOIN genre g ON fg.genre_id = g.genre_id
+    private static final String FIND_GENRES_OF_FILMS = """
+            SELECT 'G' AS kind, fg.film_id, fg.genre_id AS ref_id
+            FROM film_genre AS fg
+            WHERE fg.film_id IN (%1$s)
             """;
-    private static final String ADD_LIKE_FILM = "MERGE INTO likes (film_id, user_id) VALUES (?, ?)";
-    private static final String DELETE_LIKE_FILM = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-    private static final String GET_LIKES_BY_FILM_ID = "SELECT user_id FROM likes WHERE film_id = ?";
     private static final String FIND_LIKES_OF_FILMS = """
-            SELECT l.film_id, l.user_id
+            SELECT 'L' AS kind, l.film_id, l.user_id AS ref_id
             FROM likes AS l
-            JOIN film AS f ON f.film_id = l.film_id
-            """;
-    private static final String FIND_DIRECTOR_OF_FILMS = """
-            SELECT fd.film_id, d.director_id, d.name
-            FROM film_director fd
-            JOIN director d ON fd.director_id = d.director_id
+            WHERE l.film_id IN (%1$s)
             """;
+    private static final String ASSOCIATIONS_ORDER = "ORDER BY film_id, kind, ref_id";
     private static final String FIND_ALL = """
             SELECT f.*, r.rating_name
             FROM film f
             JOIN rating r ON f.rating_id = r.rating_id
             """;
+    private static final String FIND_FILM_NAMES = "SELECT film_id, name FROM film";
+    private static final String FIND_FILM_LIKE_COUNTS = "SELECT film_id, like_count FROM film WHERE like_count > 0";
+    private static final String FIND_FILM_DIRECTOR_IDS = "SELECT film_id, director_id FROM film_director";
+    private static final String FIND_FILM_GENRE_IDS = "SELECT film_id, genre_id FROM film_genre";
+    private static final String FIND_FILM_RELEASE_YEARS =
+            "SELECT film_id, EXTRACT(YEAR FROM release_date) AS release_year FROM film";
+    private static final String FIND_BY_IDS = """
+            SELECT f.*, r.rating_name
+            FROM film f
+            JOIN rating r ON f.rating_id = r.rating_id
+            WHERE f.film_id IN (%s)
+            """;
     private static final String FIND_BY_ID = """
-                SELECT f.*, r.rating_name
-                FROM film f
-                LEFT JOIN rating r ON f.rating_id = r.rating_id
-                WHERE f.film_id = ?
+            SELECT f.*, r.rating_name,
+                   ARRAY(SELECT l.user_id FROM likes AS l WHERE l.film_id = f.film_id) AS like_ids,
+                   ARRAY(SELECT fg.genre_id
+                         FROM film_genre AS fg
+                         WHERE fg.film_id = f.film_id
+                         ORDER BY fg.genre_id) AS genre_ids,
+                   ARRAY(SELECT fd.director_id
+                         FROM film_director AS fd
+                         WHERE fd.film_id = f.film_id
+                         ORDER BY fd.director_id) AS director_ids
+            FROM film f
+            LEFT JOIN rating r ON f.rating_id = r.rating_id
+            WHERE f.film_id = ?
             """;
+    private static final String EXISTS_BY_ID = "SELECT EXISTS(SELECT 1 FROM film WHERE film_id = ?)";
     private static final String DELETE = "DELETE FROM film WHERE film_id = ?";
     private static final String UPDATE = "UPDATE film SET name = ?, description = ?, duration = ?, " +
                                          "release_date = ?, rating_id = ? WHERE film_id = ?";
-    private static final String FIND_MOST_POPULAR_FILMS = """
-            SELECT f.film_id,
-                       f.name,
-                       f.description,
-                       f.release_date,
-                       f.duration,
-                       f.rating_id,
-                       r.rating_name,
-                       COUNT(l.user_id) AS likes_film
-                FROM film AS f
-                JOIN rating r ON f.rating_id = r.rating_id
-                LEFT JOIN likes AS l ON f.film_id = l.film_id
-                GROUP BY f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.rating_name
-                ORDER BY likes_film DESC
+    private static final String FIND_POPULAR_FILMS = """
+            SELECT f.*, r.rating_name
+            FROM film AS f
+            JOIN rating r ON f.rating_id = r.rating_id
+            WHERE 1 = 1
+            """;
+    private static final String POPULAR_GENRE_CONDITION = """
+             AND EXISTS (SELECT 1 FROM film_genre AS fg WHERE fg.film_id = f.film_id AND fg.genre_id = ?)
             """;
+    private static final String POPULAR_YEAR_CONDITION = " AND f.release_date >= ? AND f.release_date < ?";
+    private static final String POPULAR_ORDER_AND_LIMIT = " ORDER BY f.like_count DESC, f.film_id LIMIT ?";
+    private static final String INCREMENT_LIKE_COUNT = "UPDATE film SET like_count = like_count + 1 WHERE film_id = ?";
+    private static final String DECREMENT_LIKE_COUNT = "UPDATE film SET like_count = like_count - 1 WHERE film_id = ?";
 
     private static final String FIND_FILMS_BY_DIRECTOR_LIKES = """
-             SELECT f.film_id,
-                       f.name,
-                       f.description,
-                       f.release_date,
-                       f.duration,
-                       f.rating_id,
-                       r.rating_name,
-                       COUNT(l.user_id) AS likes_count
-                FROM film AS f
-                JOIN film_director AS fd ON f.film_id = fd.film_id
-                LEFT JOIN likes AS l ON f.film_id = l.film_id
-                JOIN rating r ON f.rating_id = r.rating_id
-                WHERE fd.director_id = ?
-                GROUP BY f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.rating_name
-                ORDER BY likes_count DESC
+            SELECT f.*, r.rating_name
+            FROM film AS f
+            JOIN film_director AS fd ON f.film_id = fd.film_id
+            JOIN rating r ON f.rating_id = r.rating_id
+            WHERE fd.director_id = ?
+            ORDER BY f.like_count DESC, f.film_id
             """;
+    private static final String FIND_FILMS_PAGE = """
+            SELECT f.*, r.rating_name
+            FROM film f
+            JOIN rating r ON f.rating_id = r.rating_id
+            WHERE f.film_id > ?
+            ORDER BY f.film_id
+            LIMIT ?
+            """;
+    private static final String FIND_FILMS_BY_DIRECTOR_LIKES_PAGE = """
+            SELECT f.*, r.rating_name
+            FROM film_director AS fd
+            JOIN film AS f ON f.film_id = fd.film_id
+            JOIN rating r ON f.rating_id = r.rating_id
+            WHERE fd.director_id = ?
+              AND (f.like_count < ? OR (f.like_count = ? AND f.film_id > ?))
+            ORDER BY f.like_count DESC, f.film_id
+            LIMIT ?
+            """;
+    private static final String FIND_FILMS_BY_DIRECTOR_YEARS_PAGE = """
+            SELECT f.*, r.rating_name
+            FROM film_director AS fd
+            JOIN film AS f ON f.film_id = fd.film_id
+            JOIN rating r ON f.rating_id = r.rating_id
+            WHERE fd.director_id = ?
+              AND (f.release_date > ? OR (f.release_date = ? AND f.film_id > ?))
+            ORDER BY f.release_date, f.film_id
+            LIMIT ?
+            """;
+    private static final LocalDate FIRST_RELEASE_DATE = LocalDate.of(1, 1, 1);
     private static final String FIND_FILMS_BY_DIRECTOR_YEARS = """
              SELECT f.film_id,
                        f.name,
@@ -121,6 +165,7 @@ public class FilmDbStorage implements FilmStorage {
                        f.release_date,
                        f.duration,
                        f.rating_id,
+                       f.like_count,
                        r.rating_name
                 FROM film AS f
                 JOIN film_director AS fd ON f.film_id = fd.film_id
@@ -129,67 +174,186 @@ public class FilmDbStorage implements FilmStorage {
                 ORDER BY f.release_date ASC
             """;
     private static final String FIND_FILM_BY_TITLE = """
-                SELECT f.film_id, f.name, f.description, f.release_date, f.duration,
-                       f.rating_id, r.rating_name, COUNT(l.user_id) AS likes_count
-                FROM film AS f
-                JOIN rating AS r ON f.rating_id = r.rating_id
-                LEFT JOIN likes AS l ON f.film_id = l.film_id
-                WHERE LOWER(f.name) LIKE(CONCAT('%', ?, '%'))
-                GROUP BY f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.rating_name
-                ORDER BY likes_count DESC
+            SELECT f.*, r.rating_name
+            FROM film AS f
+            JOIN rating AS r ON f.rating_id = r.rating_id
+            WHERE LOWER(f.name) LIKE(CONCAT('%', ?, '%'))
+            ORDER BY f.like_count DESC, f.film_id
             """;
 
     private static final String FIND_FILM_BY_DIRECTOR = """
-                SELECT DISTINCT f.film_id, f.name, f.description, f.release_date, f.duration,
-                       f.rating_id, r.rating_name, COUNT(l.user_id) AS likes_count
-                FROM film AS f
-                LEFT JOIN film_director fd ON f.film_id = fd.film_id
-                LEFT JOIN director d ON fd.director_id = d.director_id
-                JOIN rating AS r ON f.rating_id = r.rating_id
-                LEFT JOIN likes AS l ON f.film_id = l.film_id
-                WHERE LOWER(d.name) LIKE(CONCAT('%', ?, '%'))
-                GROUP BY f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.rating_name
-                ORDER BY likes_count DESC
+            SELECT f.*, r.rating_name
+            FROM film AS f
+            JOIN rating AS r ON f.rating_id = r.rating_id
+            WHERE EXISTS (SELECT 1
+                          FROM film_director AS fd
+                          JOIN director AS d ON fd.director_id = d.director_id
+                          WHERE fd.film_id = f.film_id AND LOWER(d.name) LIKE(CONCAT('%', ?, '%')))
+            ORDER BY f.like_count DESC, f.film_id
             """;
 
     private static final String FIND_FILM_BY_TITLE_DIRECTOR = """
-                SELECT f.film_id, f.name, f.description, f.release_date, f.duration,
-                       f.rating_id, r.rating_name, COUNT(l.user_id) AS likes_count
-                FROM film AS f
-                LEFT JOIN film_director fd ON f.film_id = fd.film_id
-                LEFT JOIN director d ON fd.director_id = d.director_id
-                JOIN rating AS r ON f.rating_id = r.rating_id
-                LEFT JOIN likes AS l ON f.film_id = l.film_id
-                WHERE LOWER(d.name) LIKE(CONCAT('%', ?, '%'))
-                   OR LOWER(f.name) LIKE(CONCAT('%', ?, '%'))
-                GROUP BY f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.rating_name
-                ORDER BY likes_count DESC
+            SELECT f.*, r.rating_name
+            FROM film AS f
+            JOIN rating AS r ON f.rating_id = r.rating_id
+            WHERE LOWER(f.name) LIKE(CONCAT('%', ?, '%'))
+               OR EXISTS (SELECT 1
+                          FROM film_director AS fd
+                          JOIN director AS d ON fd.director_id = d.director_id
+                          WHERE fd.film_id = f.film_id AND LOWER(d.name) LIKE(CONCAT('%', ?, '%')))
+            ORDER BY f.like_count DESC, f.film_id
             """;
 
     @Override
     public List<Film> getAllFilms() {
+        return getAllFilms(FilmField.ALL);
+    }
+
+    @Override
+    public List<Film> getAllFilms(Set<FilmField> fields) {
         List<Film> films = jdbcTemplate.query(FIND_ALL, filmRowMapper);
-        enrichFilm(films);
+        enrichFilm(films, fields);
+        return films;
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> consumer) {
+        forEachFilm(FilmField.ALL, consumer);
+    }
+
+    @Override
+    public void forEachFilm(Set<FilmField> fields, Consumer<Film> consumer) {
+        try (Stream<Film> films = jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_ALL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, filmRowMapper)) {
+            List<Film> chunk = new ArrayList<>(ENRICH_BATCH_SIZE);
+            films.forEachOrdered(film -> {
+                chunk.add(film);
+                if (chunk.size() == ENRICH_BATCH_SIZE) {
+                    enrichFilm(chunk, fields);
+                    chunk.forEach(consumer);
+                    chunk.clear();
+                }
+            });
+            enrichFilm(chunk, fields);
+            chunk.forEach(consumer);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(Integer afterId, int limit, Set<FilmField> fields) {
+        List<Film> films = jdbcTemplate.query(FIND_FILMS_PAGE, filmRowMapper,
+                afterId == null ? 0 : afterId, limit);
+        enrichFilm(films, fields);
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsByDirectorSortedByLikesAfter(Integer directorId, Integer afterLikes, Integer afterId,
+                                                           int limit, Set<FilmField> fields) {
+        int likes = afterLikes == null ? Integer.MAX_VALUE : afterLikes;
+        List<Film> films = jdbcTemplate.query(FIND_FILMS_BY_DIRECTOR_LIKES_PAGE, filmRowMapper,
+                directorId, likes, likes, afterId == null ? 0 : afterId, limit);
+        enrichFilm(films, fields);
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsByDirectorSortedByYearsAfter(Integer directorId, LocalDate afterDate, Integer afterId,
+                                                           int limit, Set<FilmField> fields) {
+        Date date = Date.valueOf(afterDate == null ? FIRST_RELEASE_DATE : afterDate);
+        List<Film> films = jdbcTemplate.query(FIND_FILMS_BY_DIRECTOR_YEARS_PAGE, filmRowMapper,
+                directorId, date, date, afterId == null ? 0 : afterId, limit);
+        enrichFilm(films, fields);
+        return films;
+    }
+
+    @Override
+    public Map<Integer, String> getFilmNames() {
+        Map<Integer, String> names = new HashMap<>();
+        jdbcTemplate.query(FIND_FILM_NAMES, rs -> {
+            names.put(rs.getInt("film_id"), rs.getString("name"));
+        });
+        return names;
+    }
+
+    @Override
+    public Map<Integer, Integer> getFilmLikeCounts() {
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        jdbcTemplate.query(FIND_FILM_LIKE_COUNTS, rs -> {
+            likeCounts.put(rs.getInt("film_id"), rs.getInt("like_count"));
+        });
+        return likeCounts;
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> getFilmDirectorIds() {
+        Map<Integer, Set<Integer>> links = new HashMap<>();
+        jdbcTemplate.query(FIND_FILM_DIRECTOR_IDS, rs -> {
+            links.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("director_id"));
+        });
+        return links;
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> getFilmGenreIds() {
+        Map<Integer, Set<Integer>> links = new HashMap<>();
+        jdbcTemplate.query(FIND_FILM_GENRE_IDS, rs -> {
+            links.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("genre_id"));
+        });
+        return links;
+    }
+
+    @Override
+    public Map<Integer, Integer> getFilmReleaseYears() {
+        Map<Integer, Integer> years = new HashMap<>();
+        jdbcTemplate.query(FIND_FILM_RELEASE_YEARS, rs -> {
+            years.put(rs.getInt("film_id"), rs.getInt("release_year"));
+        });
+        return years;
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Integer> ids) {
+        return findFilmsByIds(ids, FilmField.ALL);
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Integer> ids, Set<FilmField> fields) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ENRICH_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + ENRICH_BATCH_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            jdbcTemplate.query(String.format(FIND_BY_IDS, placeholders), filmRowMapper, batch.toArray())
+                    .forEach(film -> filmsById.put(film.getId(), film));
+        }
+        List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        enrichFilm(films, fields);
         return films;
     }
 
     @Override
-    public List<Film> getFilmsByDirectorSortedByLikes(Integer directorId) {
+    public List<Film> getFilmsByDirectorSortedByLikes(Integer directorId, Set<FilmField> fields) {
         List<Film> films = jdbcTemplate.query(FIND_FILMS_BY_DIRECTOR_LIKES, filmRowMapper, directorId);
         if (films.isEmpty()) {
             throw new NotFoundException("Фильмы с режиссёром id= " + directorId + " не найдены.");
         }
-        enrichFilm(films);
+        enrichFilm(films, fields);
         return films;
     }
 
     @Override
-    public List<Film> getFilmsByDirectorSortedByYears(Integer directorId) {
+    public List<Film> getFilmsByDirectorSortedByYears(Integer directorId, Set<FilmField> fields) {
         List<Film> films = jdbcTemplate.query(FIND_FILMS_BY_DIRECTOR_YEARS, filmRowMapper, directorId);
         if (films.isEmpty()) {
             throw new NotFoundException("Фильмы с режиссёром id= " + directorId + " не найдены.");
         }
-        enrichFilm(films);
+        enrichFilm(films, fields);
         return films;
     }
 
@@ -209,7 +373,8 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public List<Film> searchByTitleAndDirector(String query) {
-        List<Film> films = jdbcTemplate.query(FIND_FILM_BY_TITLE_DIRECTOR, filmRowMapper, query.toLowerCase(), query.toLowerCase());
+        List<Film> films = jdbcTemplate.query(FIND_FILM_BY_TITLE_DIRECTOR, filmRowMapper,
+                query.toLowerCase(), query.toLowerCase());
         enrichFilm(films);
         return films;
     }
@@ -277,6 +442,7 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional
     public Film updateFilm(Film newFilm) {
         int rowsUpdated = jdbcTemplate.update(UPDATE, newFilm.getName(),
                 newFilm.getDescription(), newFilm.getDuration(), newFilm.getReleaseDate(), newFilm.getRating().getId(),
@@ -322,46 +488,85 @@ public class FilmDbStorage implements FilmStorage {
                         }
                     });
         }
-        return findById(newFilm.getId()).orElseThrow(() ->
+        filmCache.invalidate(newFilm.getId());
+        return Optional.ofNullable(loadById(newFilm.getId())).orElseThrow(() ->
                 new NotFoundException("Не удалось найти обновлённый фильм с id " + newFilm.getId()));
     }
 
     @Override
     public Optional<Film> findById(Integer id) {
+        return Optional.ofNullable(filmCache.get(id, this::loadById));
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return filmCache.contains(id)
+                || Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_BY_ID, Boolean.class, id));
+    }
+
+    private Film loadById(Integer id) {
         try {
-            Film result = jdbcTemplate.queryForObject(FIND_BY_ID, filmRowMapper, id);
-            if (result != null) {
-                result.setLikes(getLikesByFilmId(id));
-                result.setGenres(getGenresByFilmId(id));
-                result.setDirectors(getDirectorsByFilmId(id));
-            }
-            return Optional.ofNullable(result);
+            return jdbcTemplate.queryForObject(FIND_BY_ID, this::mapFilmWithAssociations, id);
         } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
+            return null;
         }
     }
 
     @Override
-    public List<Film> findMostPopularFilms() {
-        return jdbcTemplate.query(FIND_MOST_POPULAR_FILMS, filmRowMapper);
+    public List<Film> findMostPopularFilms(int count, Integer genreId, Integer year, Set<FilmField> fields) {
+        StringBuilder sql = new StringBuilder(FIND_POPULAR_FILMS);
+        List<Object> params = new ArrayList<>();
+        if (genreId != null) {
+            sql.append(POPULAR_GENRE_CONDITION);
+            params.add(genreId);
+        }
+        if (year != null) {
+            sql.append(POPULAR_YEAR_CONDITION);
+            params.add(Date.valueOf(LocalDate.of(year, 1, 1)));
+            params.add(Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+        }
+        sql.append(POPULAR_ORDER_AND_LIMIT);
+        params.add(count);
+        List<Film> films = jdbcTemplate.query(sql.toString(), filmRowMapper, params.toArray());
+        enrichFilm(films, fields);
+        return films;
     }
 
     @Override
-    public void addLike(Integer filmId, Integer userID) {
-        jdbcTemplate.update(ADD_LIKE_FILM, filmId, userID);
+    @Transactional
+    public boolean addLike(Integer filmId, Integer userID) {
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(ADD_LIKE_FILM, filmId, userID, filmId, userID);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        if (inserted > 0) {
+            jdbcTemplate.update(INCREMENT_LIKE_COUNT, filmId);
+            filmCache.invalidate(filmId);
+        }
+        return inserted > 0;
     }
 
     @Override
-    public void deleteLike(Integer filmId, Integer userID) {
-        jdbcTemplate.update(DELETE_LIKE_FILM, filmId, userID);
+    @Transactional
+    public boolean deleteLike(Integer filmId, Integer userID) {
+        int deleted = jdbcTemplate.update(DELETE_LIKE_FILM, filmId, userID);
+        if (deleted > 0) {
+            jdbcTemplate.update(DECREMENT_LIKE_COUNT, filmId);
+            filmCache.invalidate(filmId);
+        }
+        return deleted > 0;
     }
 
     @Override
+    @Transactional
     public void deleteFilmById(Integer filmId) {
         jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", filmId);
         jdbcTemplate.update(DELETE_FILM_GENRE, filmId);
         jdbcTemplate.update(DELETE_FILM_DIRECTOR, filmId);
         jdbcTemplate.update(DELETE, filmId);
+        filmCache.invalidate(filmId);
     }
 
     @Override
@@ -374,80 +579,106 @@ public class FilmDbStorage implements FilmStorage {
     public Set<Genre> getGenresByFilmId(Integer filmId) {
         List<Genre> genres = jdbcTemplate.query(
                 FIND_GENRES_FILM_BY_ID,
-                genreRowMapper,
+                (rs, rowNum) -> genre(rs.getInt("genre_id")),
                 filmId
         );
-        genres.sort(Comparator.comparing(Genre::getId));
         return new LinkedHashSet<>(genres);
     }
 
     @Override
     public Set<Director> getDirectorsByFilmId(Integer filmId) {
-        return new HashSet<>(jdbcTemplate.query(FIND_DIRECTORS_FILM_BY_ID, directorRowMapper, filmId));
+        return new HashSet<>(jdbcTemplate.query(FIND_DIRECTORS_FILM_BY_ID,
+                (rs, rowNum) -> director(rs.getInt("director_id")), filmId));
     }
 
-    @Override
-    public List<Film> getCommonFilmsWithFriend(Integer userId, Integer friendId) {
-        String sql = """
-                    SELECT f.*, r.rating_name, g.genre_id
-                    FROM likes l1
-                    JOIN likes l2 ON l1.film_id = l2.film_id
-                    JOIN film f ON l1.film_id = f.film_id
-                    LEFT JOIN rating r ON f.rating_id = r.rating_id
-                    LEFT JOIN film_genre fg ON f.film_id = fg.film_id
-                    LEFT JOIN genre g ON fg.genre_id = g.genre_id
-                    WHERE l1.user_id = ? AND l2.user_id = ?
-                """;
-        List<Film> commonFilms = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Film film = filmRowMapper.mapRow(rs, rowNum);
-            Set<Genre> genres = new HashSet<>();
-            do {
-                Integer genreId = rs.getInt("genre_id");
-                if (!rs.wasNull()) {
-                    Genre genre = new Genre();
-                    genre.setId(genreId);
-                    genres.add(genre);
-                }
-            } while (rs.next() && rs.getInt("film_id") == film.getId());
-            film.setGenres(genres);
-            return film;
-        }, userId, friendId);
-        return commonFilms;
+    private Film mapFilmWithAssociations(ResultSet rs, int rowNum) throws SQLException {
+        Film film = filmRowMapper.mapRow(rs, rowNum);
+        Integer[] likeIds = readIntArray(rs, "like_ids");
+        IntSet likes = new IntSet(likeIds.length);
+        for (Integer likeId : likeIds) {
+            likes.add(likeId.intValue());
+        }
+        film.setLikes(likes);
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (Integer genreId : readIntArray(rs, "genre_ids")) {
+            genres.add(genre(genreId));
+        }
+        film.setGenres(genres);
+        Set<Director> directors = new LinkedHashSet<>();
+        for (Integer directorId : readIntArray(rs, "director_ids")) {
+            directors.add(director(directorId));
+        }
+        film.setDirectors(directors);
+        return film;
+    }
+
+    private static Integer[] readIntArray(ResultSet rs, String column) throws SQLException {
+        Object[] values = (Object[]) rs.getArray(column).getArray();
+        return Arrays.copyOf(values, values.length, Integer[].class);
     }
 
     private void enrichFilm(List<Film> films) {
-        Map<Integer, Set<Genre>> filmGenres = new HashMap<>();
-        jdbcTemplate.query(FIND_GENRES_FILMS,
-                (rs) -> {
-                    int filmId = rs.getInt("film_id");
-                    Genre genre = new Genre();
-                    genre.setId(rs.getInt("genre_id"));
-                    genre.setName(rs.getString("name"));
-                    filmGenres.computeIfAbsent(filmId, k -> new HashSet<>()).add(genre);
-                });
-
-        Map<Integer, Set<Integer>> filmLikes = new HashMap<>();
-        jdbcTemplate.query(FIND_LIKES_OF_FILMS,
-                (rs) -> {
-                    int filmId = rs.getInt("film_id");
-                    filmLikes.computeIfAbsent(filmId, k -> new HashSet<>()).add(rs.getInt("user_id"));
-                });
-
-        Map<Integer, Set<Director>> filmDirectors = new HashMap<>();
-        jdbcTemplate.query(FIND_DIRECTOR_OF_FILMS,
-                (rs) -> {
-                    int filmId = rs.getInt("film_id");
-                    Director director = new Director();
-                    director.setId(rs.getInt("director_id"));
-                    director.setName(rs.getString("name"));
-                    filmDirectors.computeIfAbsent(filmId, k -> new HashSet<>()).add(director);
-                });
+        enrichFilm(films, FilmField.ALL);
+    }
 
+    private void enrichFilm(List<Film> films, Set<FilmField> fields) {
+        List<String> parts = new ArrayList<>(3);
+        if (fields.contains(FilmField.DIRECTORS)) {
+            parts.add(FIND_DIRECTORS_OF_FILMS);
+        }
+        if (fields.contains(FilmField.GENRES)) {
+            parts.add(FIND_GENRES_OF_FILMS);
+        }
+        if (fields.contains(FilmField.LIKES)) {
+            parts.add(FIND_LIKES_OF_FILMS);
+        }
+        if (films.isEmpty() || parts.isEmpty()) {
+            return;
+        }
+        String sql = String.join("UNION ALL\n", parts) + ASSOCIATIONS_ORDER;
+        Map<Integer, Film> filmsById = new HashMap<>();
         for (Film film : films) {
-            int id = film.getId();
-            film.setGenres(filmGenres.getOrDefault(id, new HashSet<>()));
-            film.setLikes(filmLikes.getOrDefault(id, new HashSet<>()));
-            film.setDirectors(filmDirectors.getOrDefault(id, new HashSet<>()));
+            film.setGenres(new LinkedHashSet<>());
+            film.setLikes(new IntSet());
+            film.setDirectors(new LinkedHashSet<>());
+            filmsById.put(film.getId(), film);
         }
+        List<Integer> ids = new ArrayList<>(filmsById.keySet());
+        for (int from = 0; from < ids.size(); from += ENRICH_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + ENRICH_BATCH_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            Object[] params = new Object[batch.size() * parts.size()];
+            for (int i = 0; i < parts.size(); i++) {
+                for (int j = 0; j < batch.size(); j++) {
+                    params[i * batch.size() + j] = batch.get(j);
+                }
+            }
+            jdbcTemplate.query(String.format(sql, placeholders),
+                    rs -> {
+                        Film film = filmsById.get(rs.getInt("film_id"));
+                        int refId = rs.getInt("ref_id");
+                        switch (rs.getString("kind")) {
+                            case "D" -> film.getDirectors().add(director(refId));
+                            case "G" -> film.getGenres().add(genre(refId));
+                            default -> film.getLikes().add(refId);
+                        }
+                    }, params);
+        }
+    }
+
+    private Genre genre(Integer genreId) {
+        return referenceDataCache.findGenre(genreId).orElseGet(() -> {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            return genre;
+        });
+    }
+
+    private Director director(Integer directorId) {
+        return referenceDataCache.findDirector(directorId).orElseGet(() -> {
+            Director director = new Director();
+            director.setId(directorId);
+            return director;
+        });
     }
 }
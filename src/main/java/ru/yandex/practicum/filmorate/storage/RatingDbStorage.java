@@ -1,12 +1,10 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.Data;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.storage.interfaces.RatingStorage;
-import ru.yandex.practicum.filmorate.storage.mappers.RatingRowMapper;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,23 +12,15 @@ import java.util.Optional;
 @Data
 @Repository
 public class RatingDbStorage implements RatingStorage {
-    private final JdbcTemplate jdbcTemplate;
-    private final RatingRowMapper ratingRowMapper;
-    private static String FIND_ALL_RATINGS = "SELECT * FROM rating";
-    private static String FIND_RATING_BY_ID = "SELECT * FROM rating WHERE rating_id = ?";
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public List<Rating> gelAllRatings() {
-        return jdbcTemplate.query(FIND_ALL_RATINGS, ratingRowMapper);
+        return referenceDataCache.getRatings();
     }
 
     @Override
     public Optional<Rating> getRatingById(Integer id) {
-        try {
-            Rating result = jdbcTemplate.queryForObject(FIND_RATING_BY_ID, ratingRowMapper, id);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return referenceDataCache.findRating(id);
     }
 }
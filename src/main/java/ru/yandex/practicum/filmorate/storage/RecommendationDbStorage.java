@@ -4,6 +4,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.storage.interfaces.RecommendationStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
@@ -49,6 +50,15 @@ public class RecommendationDbStorage implements RecommendationStorage {
         return films;
     }
 
+    @Override
+    public Map<Integer, IntSet> getLikedFilmIdsByUser() {
+        Map<Integer, IntSet> likes = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, film_id FROM likes ORDER BY user_id, film_id", rs -> {
+            likes.computeIfAbsent(rs.getInt("user_id"), id -> new IntSet()).add(rs.getInt("film_id"));
+        });
+        return likes;
+    }
+
     private Map<Integer, Set<Genre>> getGenresForFilms(List<Film> films) {
         if (films.isEmpty()) return Collections.emptyMap();
 
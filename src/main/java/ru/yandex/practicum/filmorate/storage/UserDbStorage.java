@@ -1,10 +1,13 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.Data;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
@@ -14,46 +17,68 @@ import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Data
 @Repository
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
     private final UserRowMapper userRowMapper;
+    private final FilmCache filmCache;
     private static final String INSERT_QUERY = "INSERT INTO users(name, login, email,birthday) " +
                                                "VALUES (?, ?, ?, ?)";
     private static final String FIND_ALL = "SELECT * FROM users";
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String FIND_PAGE = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
     private static final String FIND_BY_ID = "SELECT * FROM users where user_id = ?";
+    private static final String FIND_BY_IDS = "SELECT * FROM users WHERE user_id IN (%s)";
+    private static final String FIND_FRIENDSHIPS = "SELECT user_id, friend_id FROM friendship";
+    private static final int FIND_BY_IDS_BATCH_SIZE = 500;
     private static final String DELETE = "DELETE FROM users WHERE user_id = ?";
     private static final String UPDATE = "UPDATE users SET name = ?, login = ?, email = ?, birthday = ? WHERE user_id = ?";
-    private static final String INSERT_FRIEND = "INSERT INTO friendship(user_id,friend_id,status) " +
-                                                "VALUES (?, ?, ?)";
-    private static final String DELETE_FRIEND = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
-    private static final String FIND_COMMON_FRIENDS = """
-            SELECT u.user_id, u.name, u.email, u.login, u.birthday
-            FROM users AS u
-            WHERE u.user_id IN (
-                SELECT f1.friend_id
-                FROM friendship AS f1
-                JOIN friendship AS f2 ON f1.friend_id = f2.friend_id
-                WHERE f1.user_id = ? AND f2.user_id = ?
-                  AND f1.status = 'CONFIRMED' AND f2.status = 'CONFIRMED'
-            )
+    private static final String INSERT_FRIEND = """
+            INSERT INTO friendship (user_id, friend_id, status)
+            SELECT CAST(? AS INTEGER), CAST(? AS INTEGER), ?
+            WHERE NOT EXISTS (SELECT 1 FROM friendship WHERE user_id = ? AND friend_id = ?)
             """;
-    private static final String FIND_ALL_FRIENDS = """
-            SELECT u.user_id, u.name, u.email, u.login, u.birthday
-            FROM users AS u
-            JOIN friendship AS f ON u.user_id = f.friend_id
-            WHERE f.user_id = ?
+    private static final String DELETE_FRIEND = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
+    private static final String DECREMENT_LIKE_COUNTS_OF_USER = """
+            UPDATE film SET like_count = like_count - 1
+            WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)
             """;
+    private static final String FIND_FILM_IDS_LIKED_BY_USER = "SELECT film_id FROM likes WHERE user_id = ?";
+    private static final String DELETE_LIKES_OF_USER = "DELETE FROM likes WHERE user_id = ?";
 
     @Override
     public List<User> getAllUsers() {
         return jdbcTemplate.query(FIND_ALL, userRowMapper);
     }
 
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        try (Stream<User> users = jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_ALL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, userRowMapper)) {
+            users.forEachOrdered(consumer);
+        }
+    }
+
+    @Override
+    public List<User> getUsersAfter(Integer afterId, int limit) {
+        return jdbcTemplate.query(FIND_PAGE, userRowMapper, afterId == null ? 0 : afterId, limit);
+    }
+
     @Override
     public Optional<User> findById(Integer id) {
         try {
@@ -64,6 +89,32 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    @Override
+    public List<User> findUsersByIds(List<Integer> ids) {
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += FIND_BY_IDS_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + FIND_BY_IDS_BATCH_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            jdbcTemplate.query(String.format(FIND_BY_IDS, placeholders), userRowMapper, batch.toArray())
+                    .forEach(user -> usersById.put(user.getId(), user));
+        }
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachFriendship(BiConsumer<Integer, Integer> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_FRIENDSHIPS);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(rs.getInt("user_id"), rs.getInt("friend_id"));
+        });
+    }
+
     @Override
     public User create(User user) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
@@ -97,8 +148,12 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public void addFriend(Integer userId, Integer friendId) {
-        jdbcTemplate.update(INSERT_FRIEND, userId, friendId, "CONFIRMED");
+    public boolean addFriend(Integer userId, Integer friendId) {
+        try {
+            return jdbcTemplate.update(INSERT_FRIEND, userId, friendId, "CONFIRMED", userId, friendId) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
     }
 
     @Override
@@ -107,21 +162,17 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public List<User> findCommonFriends(Integer userId, Integer friendId) {
-        return jdbcTemplate.query(FIND_COMMON_FRIENDS, userRowMapper, userId, friendId);
-    }
-
-    @Override
-    public List<User> findAllFriends(Integer userId) {
-        return jdbcTemplate.query(FIND_ALL_FRIENDS, userRowMapper, userId);
-    }
-
-    @Override
-    public void deleteUserById(Integer userId) {
+    @Transactional
+    public List<Integer> deleteUserById(Integer userId) {
         String deleteFromFriendship = "DELETE FROM friendship WHERE user_id = ? OR friend_id = ?";
         String deleteFromEvent = "DELETE FROM event WHERE user_id = ?";
+        List<Integer> likedFilmIds = jdbcTemplate.queryForList(FIND_FILM_IDS_LIKED_BY_USER, Integer.class, userId);
+        filmCache.invalidateAll(likedFilmIds);
+        jdbcTemplate.update(DECREMENT_LIKE_COUNTS_OF_USER, userId);
+        jdbcTemplate.update(DELETE_LIKES_OF_USER, userId);
         jdbcTemplate.update(deleteFromFriendship, userId, userId);
         jdbcTemplate.update(deleteFromEvent, userId);
         jdbcTemplate.update(DELETE, userId);
+        return likedFilmIds;
     }
 }
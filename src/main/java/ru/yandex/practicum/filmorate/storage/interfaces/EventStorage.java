@@ -5,10 +5,23 @@ import ru.yandex.practicum.filmorate.model.event.EventType;
 import ru.yandex.practicum.filmorate.model.event.Operation;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface EventStorage {
 
-    void addEvent(EventType eventType, Operation operation, Integer userId, Integer entityId);
+    Event addEvent(EventType eventType, Operation operation, Integer userId, Integer entityId);
+
+    void flush();
 
     List<Event> getEventFeed(Integer userId);
+
+    List<Event> getFeedBefore(Integer userId, Integer beforeId, int limit);
+
+    List<Event> getEventsAfter(Integer userId, Integer afterId);
+
+    void evictUser(Integer userId);
+
+    void forEachFeedEvent(Integer userId, Consumer<Event> consumer);
+
+    List<Event> getEventsSince(EventType eventType, long fromTimestamp);
 }
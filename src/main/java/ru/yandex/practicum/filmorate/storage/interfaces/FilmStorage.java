@@ -2,18 +2,50 @@ package ru.yandex.practicum.filmorate.storage.interfaces;
 
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     List<Film> getAllFilms();
 
-    List<Film> getFilmsByDirectorSortedByLikes(Integer directorId);
+    List<Film> getAllFilms(Set<FilmField> fields);
 
-    List<Film> getFilmsByDirectorSortedByYears(Integer directorId);
+    void forEachFilm(Consumer<Film> consumer);
+
+    void forEachFilm(Set<FilmField> fields, Consumer<Film> consumer);
+
+    List<Film> findFilmsByIds(List<Integer> ids);
+
+    List<Film> findFilmsByIds(List<Integer> ids, Set<FilmField> fields);
+
+    Map<Integer, String> getFilmNames();
+
+    Map<Integer, Integer> getFilmLikeCounts();
+
+    Map<Integer, Set<Integer>> getFilmDirectorIds();
+
+    Map<Integer, Set<Integer>> getFilmGenreIds();
+
+    Map<Integer, Integer> getFilmReleaseYears();
+
+    List<Film> getFilmsByDirectorSortedByLikes(Integer directorId, Set<FilmField> fields);
+
+    List<Film> getFilmsByDirectorSortedByYears(Integer directorId, Set<FilmField> fields);
+
+    List<Film> getFilmsAfter(Integer afterId, int limit, Set<FilmField> fields);
+
+    List<Film> getFilmsByDirectorSortedByLikesAfter(Integer directorId, Integer afterLikes, Integer afterId, int limit,
+                                                    Set<FilmField> fields);
+
+    List<Film> getFilmsByDirectorSortedByYearsAfter(Integer directorId, LocalDate afterDate, Integer afterId,
+                                                    int limit, Set<FilmField> fields);
 
     List<Film> searchByTitle(String query);
 
@@ -27,11 +59,13 @@ public interface FilmStorage {
 
     Optional<Film> findById(Integer id);
 
-    List<Film> findMostPopularFilms();
+    boolean existsById(Integer id);
+
+    List<Film> findMostPopularFilms(int count, Integer genreId, Integer year, Set<FilmField> fields);
 
-    void addLike(Integer filmId, Integer userID);
+    boolean addLike(Integer filmId, Integer userID);
 
-    void deleteLike(Integer filmId, Integer userID);
+    boolean deleteLike(Integer filmId, Integer userID);
 
     Set<Integer> getLikesByFilmId(Integer filmId);
 
@@ -39,7 +73,5 @@ public interface FilmStorage {
 
     Set<Director> getDirectorsByFilmId(Integer filmId);
 
-    List<Film> getCommonFilmsWithFriend(Integer userId, Integer friendId);
-
     void deleteFilmById(Integer userId);
 }
@@ -1,9 +1,13 @@
 package ru.yandex.practicum.filmorate.storage.interfaces;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RecommendationStorage {
     List<Film> getRecommendedFilms(Integer userId);
+
+    Map<Integer, IntSet> getLikedFilmIdsByUser();
 }
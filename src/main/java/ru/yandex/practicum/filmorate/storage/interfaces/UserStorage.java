@@ -4,23 +4,29 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     List<User> getAllUsers();
 
+    void forEachUser(Consumer<User> consumer);
+
+    List<User> getUsersAfter(Integer afterId, int limit);
+
     Optional<User> findById(Integer id);
 
+    List<User> findUsersByIds(List<Integer> ids);
+
+    void forEachFriendship(BiConsumer<Integer, Integer> consumer);
+
     User create(User user);
 
     User update(User newUser);
 
-    void addFriend(Integer userId,Integer friendId);
+    boolean addFriend(Integer userId,Integer friendId);
 
     void removeFriend(Integer userId,Integer friendId);
 
-    List<User> findCommonFriends(Integer userId,Integer friendId);
-
-    List<User> findAllFriends(Integer userId);
-
-    void deleteUserById(Integer userId);
+    List<Integer> deleteUserById(Integer userId);
 }
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage.mappers;
 
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Rating;
 import java.sql.ResultSet;
@@ -9,6 +10,12 @@ import java.sql.SQLException;
 
 @Component
 public class FilmRowMapper implements RowMapper<Film> {
+    private final ReferenceDataCache referenceDataCache;
+
+    public FilmRowMapper(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
     @Override
     public Film mapRow(ResultSet resultSet, int rowNum) throws SQLException {
         Film film = new Film();
@@ -17,9 +24,14 @@ public class FilmRowMapper implements RowMapper<Film> {
         film.setDescription(resultSet.getString("description"));
         film.setDuration(resultSet.getInt("duration"));
         film.setReleaseDate(resultSet.getDate("release_date").toLocalDate());
-        Rating rating = new Rating();
-        rating.setId(resultSet.getInt("rating_id"));
-        rating.setName(resultSet.getString("rating_name"));
+        film.setLikeCount(resultSet.getInt("like_count"));
+        int ratingId = resultSet.getInt("rating_id");
+        Rating rating = referenceDataCache.findRating(ratingId).orElse(null);
+        if (rating == null) {
+            rating = new Rating();
+            rating.setId(ratingId);
+            rating.setName(resultSet.getString("rating_name"));
+        }
         film.setRating(rating);
         return film;
     }
@@ -36,21 +36,29 @@ CREATE TABLE IF NOT EXISTS film (
     description VARCHAR(200) NOT NULL,
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL,
-    rating_id INTEGER REFERENCES rating(rating_id)
+    rating_id INTEGER REFERENCES rating(rating_id),
+    like_count INTEGER DEFAULT 0 NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_like_count ON film (like_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS idx_film_release_date_like_count ON film (release_date, like_count DESC);
+
 create TABLE IF NOT EXISTS film_genre (
     film_id INTEGER REFERENCES film(film_id),
     genre_id INTEGER REFERENCES genre(genre_id),
     CONSTRAINT pk_film_genre PRIMARY KEY (film_id, genre_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_genre_genre_id ON film_genre (genre_id, film_id);
+
 create TABLE IF NOT EXISTS film_director (
 film_id INTEGER REFERENCES film(film_id),
 director_id INTEGER REFERENCES director(director_id),
 CONSTRAINT pk_film_director PRIMARY KEY (film_id, director_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_director_director_id ON film_director (director_id, film_id);
+
 create TABLE IF NOT EXISTS users (
     user_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     name VARCHAR(100),
@@ -65,12 +73,17 @@ create TABLE IF NOT EXISTS likes (
     CONSTRAINT pk_likes PRIMARY KEY (film_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_likes_user_id ON likes (user_id, film_id);
+
 create TABLE IF NOT EXISTS friendship (
     user_id INTEGER REFERENCES users(user_id),
     friend_id INTEGER REFERENCES users(user_id),
     status VARCHAR(50) CHECK (status IN ('PENDING', 'CONFIRMED'))
 );
 
+CREATE UNIQUE INDEX IF NOT EXISTS idx_friendship_user_id ON friendship (user_id, friend_id);
+CREATE INDEX IF NOT EXISTS idx_friendship_friend_id ON friendship (friend_id);
+
 CREATE TABLE IF NOT EXISTS reviews (
     review_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     film_id INTEGER REFERENCES film(film_id),
@@ -96,6 +109,8 @@ CREATE TABLE IF NOT EXISTS event (
 	user_id   INTEGER REFERENCES users(user_id),
 	eventType varchar(15) NOT NULL,
 	operation varchar(15) NOT NULL,
-	event_id  INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	event_id  INTEGER PRIMARY KEY,
 	entity_id INTEGER NOT NULL
 );
+CREATE INDEX IF NOT EXISTS idx_event_user_id_event_id ON event (user_id, event_id);
+CREATE INDEX IF NOT EXISTS idx_event_timestamp ON event (timestamp);
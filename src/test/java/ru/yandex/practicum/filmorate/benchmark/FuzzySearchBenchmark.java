@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FuzzySearchBenchmark {
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    @Param({"1000", "10000", "100000"})
+    private int catalogSize;
+
+    private FilmSearchIndex index;
+    private String[] typoQueries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[Math.max(100, catalogSize / 2)];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = randomWord(random);
+        }
+        index = new FilmSearchIndex(null, null, Integer.MAX_VALUE);
+        for (int id = 1; id <= catalogSize; id++) {
+            Film film = new Film();
+            film.setId(id);
+            film.setName(vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + vocabulary[random.nextInt(vocabulary.length)]);
+            film.setDirectors(Set.of());
+            index.putFilm(film);
+        }
+        typoQueries = new String[256];
+        for (int i = 0; i < typoQueries.length; i++) {
+            char[] word = vocabulary[random.nextInt(vocabulary.length)].toCharArray();
+            word[random.nextInt(word.length)] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+            typoQueries[i] = new String(word);
+        }
+    }
+
+    @Benchmark
+    public Set<Integer> exactSearch() {
+        return index.searchByTitle(nextQuery(), false);
+    }
+
+    @Benchmark
+    public Set<Integer> fuzzySearch() {
+        return index.searchByTitle(nextQuery(), true);
+    }
+
+    private String nextQuery() {
+        next = (next + 1) % typoQueries.length;
+        return typoQueries[next];
+    }
+
+    private static String randomWord(Random random) {
+        int length = 4 + random.nextInt(6);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FuzzySearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
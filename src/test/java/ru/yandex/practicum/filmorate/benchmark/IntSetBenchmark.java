@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.profile.GCProfiler;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntSetBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private int[] ids;
+    private int[] probes;
+    private Set<Integer> hashSet;
+    private IntSet intSet;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i * 3 + random.nextInt(3);
+        }
+        probes = new int[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = random.nextInt(size * 3 + 1);
+        }
+        hashSet = buildHashSet();
+        intSet = buildIntSet();
+    }
+
+    @Benchmark
+    public Set<Integer> buildHashSet() {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public IntSet buildIntSet() {
+        IntSet set = new IntSet();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public int containsHashSet() {
+        int found = 0;
+        for (int probe : probes) {
+            if (hashSet.contains(probe)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int containsIntSet() {
+        int found = 0;
+        for (int probe : probes) {
+            if (intSet.contains(probe)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public byte[] serializeHashSet() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(hashSet);
+    }
+
+    @Benchmark
+    public byte[] serializeIntSet() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(intSet);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IntSetBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.RecommendationDbStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.RecommendationStorage;
+import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark {
+    private static final int FILMS = 2000;
+    private static final int LIKES_PER_USER = 20;
+    private static final int TOP = 10;
+
+    @Param({"1000", "10000"})
+    private int users;
+
+    private RecommendationIndex index;
+    private RecommendationDbStorage sqlStorage;
+    private DriverManagerDataSource dataSource;
+    private int[] probes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Map<Integer, IntSet> likes = new HashMap<>();
+        for (int userId = 1; userId <= users; userId++) {
+            IntSet filmIds = new IntSet();
+            int taste = random.nextInt(FILMS);
+            while (filmIds.size() < LIKES_PER_USER) {
+                filmIds.add(random.nextInt(4) == 0
+                        ? 1 + random.nextInt(20)
+                        : 1 + Math.floorMod(taste + (int) (random.nextGaussian() * 50), FILMS));
+            }
+            likes.put(userId, filmIds);
+        }
+        index = new RecommendationIndex(new FixedLikes(likes), "jaccard", TOP, 20, 2, 1000);
+        index.rebuild();
+
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:recommendations;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO rating (rating_id, rating_name) VALUES (1, 'G')");
+        List<Object[]> films = new ArrayList<>();
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            films.add(new Object[]{filmId, "film " + filmId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film (film_id, name, description, release_date, duration, rating_id) "
+                                 + "VALUES (?, ?, 'd', DATE '2000-01-01', 90, 1)", films);
+        List<Object[]> userRows = new ArrayList<>();
+        List<Object[]> likeRows = new ArrayList<>();
+        likes.forEach((userId, filmIds) -> {
+            userRows.add(new Object[]{userId, "user" + userId, "user" + userId + "@mail.ru"});
+            filmIds.forEachInt(filmId -> likeRows.add(new Object[]{filmId, userId}));
+        });
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_id, login, email) VALUES (?, ?, ?)", userRows);
+        jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", likeRows);
+        sqlStorage = new RecommendationDbStorage(jdbcTemplate,
+                new FilmRowMapper(mock(ReferenceDataCache.class)), new GenreRowMapper());
+
+        probes = random.ints(256, 1, users + 1).toArray();
+        printRecall();
+    }
+
+    @TearDown
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Benchmark
+    public List<Film> exactSql() {
+        return sqlStorage.getRecommendedFilms(nextProbe());
+    }
+
+    @Benchmark
+    public List<Integer> exactIndex() {
+        return index.recommend(nextProbe());
+    }
+
+    @Benchmark
+    public List<Integer> approximateIndex() {
+        return index.recommendApproximate(nextProbe());
+    }
+
+    private int nextProbe() {
+        next = (next + 1) % probes.length;
+        return probes[next];
+    }
+
+    private void printRecall() {
+        double recallExact = 0;
+        double recallSql = 0;
+        for (int userId : probes) {
+            List<Integer> approximate = index.recommendApproximate(userId);
+            List<Integer> exact = index.recommend(userId);
+            List<Integer> sql = sqlStorage.getRecommendedFilms(userId).stream().map(Film::getId).toList();
+            recallExact += recall(approximate, exact.subList(0, Math.min(TOP, exact.size())));
+            recallSql += recall(approximate, sql);
+        }
+        System.out.printf("%nusers=%d recall@%d approximate/exact=%.3f, approximate/sql=%.3f%n",
+                users, TOP, recallExact / probes.length, recallSql / probes.length);
+    }
+
+    private static double recall(List<Integer> found, List<Integer> expected) {
+        if (expected.isEmpty()) {
+            return 1;
+        }
+        Set<Integer> foundSet = new HashSet<>(found);
+        return (double) expected.stream().filter(foundSet::contains).count() / expected.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecommendationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private record FixedLikes(Map<Integer, IntSet> likes) implements RecommendationStorage {
+        @Override
+        public List<Film> getRecommendedFilms(Integer userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Integer, IntSet> getLikedFilmIdsByUser() {
+            return likes;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.interfaces.RecommendationStorage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationCacheTest {
+    private final RecommendationStorage recommendationStorage = mock(RecommendationStorage.class);
+    private final RecommendationIndex index =
+            new RecommendationIndex(recommendationStorage, "jaccard", 10, 20, 2, 1000);
+    private final RecommendationCache cache = new RecommendationCache(index, 0, 4, 60_000, 1000, 3);
+
+    @AfterEach
+    void tearDown() {
+        cache.stop();
+    }
+
+    @Test
+    void testPrecomputesAllUsersAndRecomputesChangedUsersLazily() {
+        Map<Integer, IntSet> likes = new HashMap<>();
+        for (int userId = 1; userId <= 500; userId++) {
+            likes.put(userId, IntSet.of(userId % 7, userId % 7 + 100, userId % 11 + 200));
+        }
+        when(recommendationStorage.getLikedFilmIdsByUser()).thenReturn(likes);
+        index.rebuild();
+        cache.start();
+
+        assertThat(cache.precomputeAll()).isEqualTo(500);
+        for (int userId = 1; userId <= 500; userId++) {
+            assertThat(cache.get(userId)).containsExactly(index.snapshot(userId).filmIds());
+        }
+
+        int[] precomputed = cache.get(2);
+        int[] before = cache.get(1);
+        assertThat(before).isNotEmpty();
+        index.addLike(1, before[0]);
+        assertThat(cache.get(1)).doesNotContain(before[0]).containsExactly(index.snapshot(1).filmIds());
+        assertThat(cache.get(2)).isSameAs(precomputed);
+
+        index.removeUser(3);
+        assertThat(cache.get(3)).containsExactly(index.popularFilmIds(3));
+    }
+
+    @Test
+    void testNeighbourLikeInvalidatesEntryAndColdStartGetsPopularFilms() {
+        when(recommendationStorage.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, IntSet.of(1, 2),
+                2, IntSet.of(1, 2, 3),
+                3, IntSet.of(5)));
+        index.rebuild();
+        cache.start();
+
+        assertThat(cache.get(1)).containsExactly(3);
+        assertThat(cache.get(1)).isSameAs(cache.get(1));
+
+        index.addLike(2, 4);
+        assertThat(cache.get(1)).containsExactly(3, 4);
+
+        assertThat(cache.get(9)).containsExactly(1, 2, 3);
+
+        index.removeUser(2);
+        assertThat(cache.get(9)).containsExactly(1, 2, 5);
+    }
+}
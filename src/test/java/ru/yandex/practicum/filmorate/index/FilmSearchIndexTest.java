@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.interfaces.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmSearchIndexTest {
+    private final FilmStorage filmStorage = mock(FilmStorage.class);
+    private final DirectorStorage directorStorage = mock(DirectorStorage.class);
+    private final FilmSearchIndex index = new FilmSearchIndex(filmStorage, directorStorage, 1000);
+
+    @BeforeEach
+    void setUp() {
+        when(filmStorage.getFilmNames()).thenReturn(Map.of(
+                1, "The Matrix",
+                2, "Matrix Reloaded",
+                3, "Крёстный отец"));
+        when(filmStorage.getFilmDirectorIds()).thenReturn(Map.of(1, Set.of(10), 2, Set.of(10), 3, Set.of(20)));
+        when(directorStorage.getAllDirectors()).thenReturn(List.of(director(10, "Lana Wachowski"),
+                director(20, "Francis Ford Coppola")));
+        index.rebuild();
+    }
+
+    @Test
+    void testSearchByTitleMatchesSubstringCaseInsensitive() {
+        assertThat(index.searchByTitle("MATR")).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.searchByTitle("x rel")).containsExactly(2);
+        assertThat(index.searchByTitle("отЕц")).containsExactly(3);
+        assertThat(index.searchByTitle("ma")).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.searchByTitle("matrices")).isEmpty();
+    }
+
+    @Test
+    void testSearchByDirectorReturnsTheirFilms() {
+        assertThat(index.searchByDirector("wachow")).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.searchByDirector("ford")).containsExactly(3);
+    }
+
+    @Test
+    void testFuzzySearchToleratesTypos() {
+        assertThat(index.searchByTitle("matirx")).isEmpty();
+        assertThat(index.searchByTitle("matirx", true)).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.searchByTitle("matrx relaoded", true)).containsExactly(2);
+        assertThat(index.searchByTitle("крестный", true)).containsExactly(3);
+        assertThat(index.searchByTitle("the", true)).containsExactly(1);
+        assertThat(index.searchByTitle("tha", true)).isEmpty();
+        assertThat(index.searchByDirector("copola", true)).containsExactly(3);
+        assertThat(index.searchByDirector("vachovsky", true)).isEmpty();
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        Film film = new Film();
+        film.setId(2);
+        film.setName("Speed Racer");
+        film.setDirectors(Set.of(director(20, null)));
+        index.putFilm(film);
+        index.putDirector(director(10, "The Wachowskis"));
+
+        assertThat(index.searchByTitle("matrix")).containsExactly(1);
+        assertThat(index.searchByTitle("racer")).containsExactly(2);
+        assertThat(index.searchByDirector("coppola")).containsExactlyInAnyOrder(2, 3);
+        assertThat(index.searchByDirector("lana")).isEmpty();
+
+        index.removeDirector(20);
+        index.removeFilm(1);
+
+        assertThat(index.searchByDirector("coppola")).isEmpty();
+        assertThat(index.searchByDirector("wachowskis")).isEmpty();
+        assertThat(index.searchByTitle("matrix")).isEmpty();
+        assertThat(index.searchByTitle("matrix", true)).isEmpty();
+        assertThat(index.searchByTitle("racr", true)).containsExactly(2);
+    }
+
+    private static Director director(int id, String name) {
+        Director director = new Director();
+        director.setId(id);
+        director.setName(name);
+        return director;
+    }
+}
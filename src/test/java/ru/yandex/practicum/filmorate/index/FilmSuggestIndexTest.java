@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.SuggestionType;
+import ru.yandex.practicum.filmorate.storage.interfaces.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmSuggestIndexTest {
+    private final FilmStorage filmStorage = mock(FilmStorage.class);
+    private final DirectorStorage directorStorage = mock(DirectorStorage.class);
+    private final FilmSuggestIndex index = new FilmSuggestIndex(filmStorage, directorStorage, 2);
+
+    @BeforeEach
+    void setUp() {
+        Director director = new Director();
+        director.setId(10);
+        director.setName("Martin Scorsese");
+        when(filmStorage.getFilmNames()).thenReturn(Map.of(1, "Mad Max", 2, "Matrix", 3, "Memento"));
+        when(filmStorage.getFilmDirectorIds()).thenReturn(Map.of(2, Set.of(10)));
+        when(filmStorage.getFilmLikeCounts()).thenReturn(Map.of(1, 2, 2, 5));
+        when(directorStorage.getAllDirectors()).thenReturn(List.of(director));
+        index.rebuild();
+    }
+
+    @Test
+    void testSuggestRanksByPopularity() {
+        assertThat(index.suggest("MA", 10))
+                .extracting(Suggestion::getName, Suggestion::getType, Suggestion::getLikes)
+                .containsExactly(
+                        tuple("Martin Scorsese", SuggestionType.DIRECTOR, 5),
+                        tuple("Matrix", SuggestionType.FILM, 5),
+                        tuple("Mad Max", SuggestionType.FILM, 2));
+        assertThat(index.suggest("mat", 1)).extracting(Suggestion::getName).containsExactly("Matrix");
+        assertThat(index.suggest("x", 10)).isEmpty();
+    }
+
+    @Test
+    void testSuggestFollowsUpdates() {
+        index.onLikeChanged(3, 7);
+        Film film = new Film();
+        film.setId(1);
+        film.setName("Gladiator");
+        index.putFilm(film);
+        index.removeDirector(10);
+
+        assertThat(index.suggest("m", 10)).extracting(Suggestion::getName).containsExactly("Memento", "Matrix");
+        assertThat(index.suggest("glad", 10)).extracting(Suggestion::getLikes).containsExactly(2);
+    }
+
+    @Test
+    void testSuggestFindsPopularEntriesSortedLast() {
+        Map<Integer, String> titles = new HashMap<>();
+        for (int id = 1; id <= 20000; id++) {
+            titles.put(id, String.format("Film %05d", id));
+        }
+        when(filmStorage.getFilmNames()).thenReturn(titles);
+        when(filmStorage.getFilmDirectorIds()).thenReturn(Map.of());
+        when(filmStorage.getFilmLikeCounts()).thenReturn(Map.of(20000, 3, 15000, 1));
+        index.rebuild();
+
+        assertThat(index.suggest("f", 2)).extracting(Suggestion::getName)
+                .containsExactly("Film 20000", "Film 15000");
+        assertThat(index.suggest("film", 1)).extracting(Suggestion::getName).containsExactly("Film 20000");
+
+        index.onLikeChanged(1, 5);
+        index.onLikeChanged(20000, -3);
+        assertThat(index.suggest("fi", 2)).extracting(Suggestion::getName, Suggestion::getLikes)
+                .containsExactly(tuple("Film 00001", 5), tuple("Film 15000", 1));
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.SearchAbortedException;
+import ru.yandex.practicum.filmorate.storage.interfaces.UserStorage;
+
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FriendshipGraphTest {
+    private final UserStorage userStorage = mock(UserStorage.class);
+
+    @Test
+    void testBuildsGraphFromStorage() {
+        friendships(new int[][]{{1, 3}, {1, 2}, {2, 3}, {1, 2}, {3, 1}});
+        FriendshipGraph graph = new FriendshipGraph(userStorage, 0, 1024, 1000, 100000, 6, 100000, 1000);
+        graph.rebuild();
+
+        assertThat(graph.friendsOf(1)).containsExactly(2, 3);
+        assertThat(graph.friendsOf(3)).containsExactly(1);
+        assertThat(graph.friendsOf(99)).isEmpty();
+        assertThat(graph.isFriend(1, 2)).isTrue();
+        assertThat(graph.isFriend(2, 1)).isFalse();
+        assertThat(graph.commonFriends(1, 2)).containsExactly(3);
+    }
+
+    @Test
+    void testIncrementalUpdatesAndCompaction() {
+        friendships(new int[][]{{1, 2}, {2, 3}});
+        FriendshipGraph graph = new FriendshipGraph(userStorage, 0, 2, 1000, 100000, 6, 100000, 1000);
+        graph.rebuild();
+
+        graph.addFriend(1, 3);
+        graph.addFriend(1, 10);
+        graph.addFriend(10, 3);
+        graph.removeFriend(2, 3);
+        assertThat(graph.friendsOf(1)).containsExactly(2, 3, 10);
+        assertThat(graph.friendsOf(2)).isEmpty();
+        assertThat(graph.commonFriends(1, 10)).containsExactly(3);
+
+        graph.compact();
+        assertThat(graph.friendsOf(1)).containsExactly(2, 3, 10);
+        assertThat(graph.commonFriends(10, 1)).containsExactly(3);
+
+        graph.addFriend(3, 2);
+        graph.removeUser(3);
+        assertThat(graph.friendsOf(1)).containsExactly(2, 10);
+        assertThat(graph.friendsOf(3)).isEmpty();
+        assertThat(graph.commonFriends(1, 10)).isEmpty();
+        assertThat(graph.shortestPath(10, 2, 6)).isEmpty();
+
+        graph.compact();
+        assertThat(graph.friendsOf(1)).containsExactly(2, 10);
+        assertThat(graph.friendsOf(3)).isEmpty();
+        assertThat(graph.isFriend(10, 3)).isFalse();
+    }
+
+    @Test
+    void testSuggestsFriendsOfFriendsByMutualCount() {
+        friendships(new int[][]{{1, 2}, {1, 3}, {1, 4}, {2, 5}, {3, 5}, {2, 6}, {4, 7}, {2, 1}, {3, 4}});
+        FriendshipGraph graph = new FriendshipGraph(userStorage, 0, 1024, 1000, 100000, 6, 100000, 1000);
+        graph.rebuild();
+
+        assertThat(graph.suggestions(1, 10, candidateId -> 0)).containsExactly(5, 6, 7);
+        assertThat(graph.suggestions(1, 2, candidateId -> candidateId == 7 ? 1 : 0)).containsExactly(5, 7);
+        assertThat(graph.suggestions(99, 10, candidateId -> 0)).isEmpty();
+
+        FriendshipGraph capped = new FriendshipGraph(userStorage, 0, 1024, 1, 100000, 6, 100000, 1000);
+        capped.rebuild();
+        assertThat(capped.suggestions(1, 10, candidateId -> 0)).containsExactly(5, 6);
+    }
+
+    @Test
+    void testFindsShortestPathInBothDirections() {
+        friendships(new int[][]{{1, 2}, {2, 3}, {3, 4}, {4, 5}, {1, 6}, {6, 5}, {5, 7}});
+        FriendshipGraph graph = new FriendshipGraph(userStorage, 0, 1024, 1000, 100000, 6, 100000, 1000);
+        graph.rebuild();
+
+        assertThat(graph.shortestPath(1, 5, 6)).containsExactly(1, 6, 5);
+        assertThat(graph.shortestPath(1, 7, 6)).containsExactly(1, 6, 5, 7);
+        assertThat(graph.shortestPath(1, 7, 2)).isEmpty();
+        assertThat(graph.shortestPath(7, 1, 6)).isEmpty();
+        assertThat(graph.shortestPath(3, 3, 6)).containsExactly(3);
+
+        graph.removeFriend(6, 5);
+        graph.addFriend(7, 8);
+        assertThat(graph.shortestPath(1, 8, 6)).containsExactly(1, 2, 3, 4, 5, 7, 8);
+        assertThat(graph.shortestPath(1, 8, 5)).isEmpty();
+
+        graph.compact();
+        assertThat(graph.shortestPath(2, 8, 6)).containsExactly(2, 3, 4, 5, 7, 8);
+
+        FriendshipGraph limited = new FriendshipGraph(userStorage, 0, 1024, 1000, 100000, 6, 3, 1000);
+        limited.rebuild();
+        assertThatThrownBy(() -> limited.shortestPath(1, 7, 6)).isInstanceOf(SearchAbortedException.class);
+    }
+
+    private void friendships(int[][] edges) {
+        doAnswer(invocation -> {
+            BiConsumer<Integer, Integer> consumer = invocation.getArgument(0);
+            for (int[] edge : edges) {
+                consumer.accept(edge[0], edge[1]);
+            }
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.interfaces.RecommendationStorage;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationIndexTest {
+    private final RecommendationStorage recommendationStorage = mock(RecommendationStorage.class);
+
+    @Test
+    void testRecommendsFilmsOfClosestNeighboursFirst() {
+        when(recommendationStorage.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, IntSet.of(1, 2, 3),
+                2, IntSet.of(1, 2, 3, 4),
+                3, IntSet.of(1, 5, 6, 7, 8, 9),
+                4, IntSet.of(10)));
+        RecommendationIndex index = new RecommendationIndex(recommendationStorage, "jaccard", 10, 20, 2, 1000);
+        index.rebuild();
+
+        assertThat(index.recommend(1)).containsExactly(4, 5, 6, 7, 8, 9);
+        assertThat(index.recommend(4)).isEmpty();
+        assertThat(index.recommend(99)).isEmpty();
+    }
+
+    @Test
+    void testNeighbourLimitAndIncrementalUpdates() {
+        when(recommendationStorage.getLikedFilmIdsByUser()).thenReturn(Map.of());
+        RecommendationIndex index = new RecommendationIndex(recommendationStorage, "cosine", 1, 20, 2, 1000);
+        index.rebuild();
+        index.addLike(1, 1);
+        index.addLike(1, 2);
+        index.addLike(2, 1);
+        index.addLike(2, 2);
+        index.addLike(2, 3);
+        index.addLike(3, 1);
+        index.addLike(3, 4);
+
+        assertThat(index.recommend(1)).containsExactly(3);
+
+        long modifications = index.modifications();
+        index.addLike(1, 1);
+        index.removeLike(1, 3);
+        assertThat(index.modifications()).isEqualTo(modifications);
+
+        index.removeLike(2, 2);
+        index.addLike(3, 2);
+        assertThat(index.recommend(1)).containsExactly(4);
+
+        index.removeUser(3);
+        assertThat(index.recommend(1)).containsExactly(3);
+
+        index.removeFilm(3);
+        assertThat(index.recommend(1)).isEmpty();
+    }
+
+    @Test
+    void testCommonFilmsAreSortedByPopularity() {
+        when(recommendationStorage.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, IntSet.of(1, 2, 3, 4),
+                2, IntSet.of(2, 3, 4, 5),
+                3, IntSet.of(4)));
+        RecommendationIndex index = new RecommendationIndex(recommendationStorage, "jaccard", 10, 20, 2, 1000);
+        index.rebuild();
+
+        assertThat(index.commonFilmIds(1, 2)).containsExactly(4, 2, 3);
+        assertThat(index.commonFilmIds(1, 99)).isEmpty();
+
+        index.removeLike(2, 4);
+        assertThat(index.commonFilmIds(2, 1)).containsExactly(2, 3);
+    }
+
+    @Test
+    void testApproximateModeFindsSimilarUsersThroughLsh() {
+        when(recommendationStorage.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, IntSet.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10),
+                2, IntSet.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11),
+                3, IntSet.of(100, 101)));
+        RecommendationIndex index = new RecommendationIndex(recommendationStorage, "jaccard", 10, 20, 2, 1000);
+        index.rebuild();
+
+        assertThat(index.recommendApproximate(1)).containsExactly(11);
+        assertThat(index.recommendApproximate(3)).isEmpty();
+
+        index.addLike(3, 1);
+        index.addLike(3, 2);
+        index.addLike(3, 3);
+        index.addLike(3, 4);
+        index.addLike(3, 5);
+        index.addLike(3, 6);
+        index.addLike(3, 7);
+        index.addLike(3, 8);
+        index.addLike(3, 9);
+        index.addLike(3, 10);
+        assertThat(index.recommendApproximate(1)).containsExactly(11, 100, 101);
+        assertThat(index.recommendApproximate(1)).containsExactlyElementsOf(index.recommend(1));
+    }
+}
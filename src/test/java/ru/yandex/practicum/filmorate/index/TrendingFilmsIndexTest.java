@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+import ru.yandex.practicum.filmorate.storage.interfaces.FilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrendingFilmsIndexTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private final FilmStorage filmStorage = mock(FilmStorage.class);
+    private final TrendingFilmsIndex index = new TrendingFilmsIndex(filmStorage, null, 0);
+
+    @Test
+    void testRanksFilmsByLikesInsideWindow() {
+        index.record(like(Operation.ADD, 1, 1, NOW - 2 * HOUR));
+        index.record(like(Operation.ADD, 2, 1, NOW - 3 * 24 * HOUR));
+        index.record(like(Operation.ADD, 2, 2, NOW - 3 * 24 * HOUR));
+        index.record(like(Operation.ADD, 3, 1, NOW - 8 * 24 * HOUR));
+
+        assertThat(index.topFilmIds(TrendingWindow.DAY, null, null, 10, NOW)).containsExactly(1);
+        assertThat(index.topFilmIds(TrendingWindow.WEEK, null, null, 10, NOW)).containsExactly(2, 1);
+        assertThat(index.topFilmIds(TrendingWindow.WEEK, null, null, 1, NOW)).containsExactly(2);
+    }
+
+    @Test
+    void testRemovedAndRepeatedLikesAreCountedOnce() {
+        index.record(like(Operation.ADD, 1, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 1, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 1, 2, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 2, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 3, NOW - HOUR));
+        index.record(like(Operation.REMOVE, 2, 3, NOW));
+        index.record(like(Operation.REMOVE, 2, 2, NOW));
+
+        assertThat(index.topFilmIds(TrendingWindow.DAY, null, null, 10, NOW)).containsExactly(1, 2);
+    }
+
+    @Test
+    void testDeletedUserLikesAreNoLongerCounted() {
+        index.record(like(Operation.ADD, 1, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 1, 2, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 3, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 4, NOW - HOUR));
+
+        index.removeUser(3);
+        index.removeUser(4);
+        assertThat(index.topFilmIds(TrendingWindow.DAY, null, null, 10, NOW)).containsExactly(1, 2);
+    }
+
+    @Test
+    void testFiltersByGenreAndYear() {
+        index.onFilmSaved(film(1, 2000, 1));
+        index.onFilmSaved(film(2, 2001, 2));
+        index.onFilmSaved(film(3, 2000, 2));
+        index.record(like(Operation.ADD, 1, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 2, 2, NOW - HOUR));
+        index.record(like(Operation.ADD, 3, 1, NOW - HOUR));
+        index.record(like(Operation.ADD, 3, 2, NOW - HOUR));
+        index.record(like(Operation.ADD, 3, 3, NOW - HOUR));
+
+        assertThat(index.topFilmIds(TrendingWindow.DAY, 2, null, 10, NOW)).containsExactly(3, 2);
+        assertThat(index.topFilmIds(TrendingWindow.DAY, null, 2000, 10, NOW)).containsExactly(3, 1);
+        assertThat(index.topFilmIds(TrendingWindow.DAY, 1, 2000, 10, NOW)).containsExactly(1);
+        verify(filmStorage, never()).findFilmsByIds(anyList(), anySet());
+    }
+
+    @Test
+    void testUnknownFilmIsLookedUpOnce() {
+        when(filmStorage.findFilmsByIds(anyList(), anySet())).thenReturn(List.of());
+        index.record(like(Operation.ADD, 5, 1, NOW - HOUR));
+
+        assertThat(index.topFilmIds(TrendingWindow.DAY, 1, null, 10, NOW)).isEmpty();
+        assertThat(index.topFilmIds(TrendingWindow.DAY, 1, null, 10, NOW)).isEmpty();
+        verify(filmStorage, times(1)).findFilmsByIds(anyList(), anySet());
+    }
+
+    private static Event like(Operation operation, int filmId, int userId, long timestamp) {
+        return Event.builder()
+                .eventType(EventType.LIKE)
+                .operation(operation)
+                .entityId(filmId)
+                .userId(userId)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static Film film(int id, int year, int genreId) {
+        Film film = new Film();
+        film.setId(id);
+        film.setReleaseDate(LocalDate.of(year, 6, 1));
+        Genre genre = new Genre();
+        genre.setId(genreId);
+        film.setGenres(Set.of(genre));
+        return film;
+    }
+}
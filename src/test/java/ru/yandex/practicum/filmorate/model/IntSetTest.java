@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntSetTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testBehavesLikeSortedSet() {
+        IntSet set = IntSet.of(5, 1, 3, 1);
+        set.remove(Integer.valueOf(3));
+        set.add(7);
+
+        assertThat(set).containsExactly(1, 5, 7);
+        assertThat(set.contains(5)).isTrue();
+        assertThat(set.contains(3)).isFalse();
+        assertThat(set).isEqualTo(Set.of(1, 5, 7));
+        assertThat(set.hashCode()).isEqualTo(Set.of(1, 5, 7).hashCode());
+    }
+
+    @Test
+    void testIntersectsSortedSetsOfAnySize() {
+        IntSet small = IntSet.of(3, 40, 99);
+        IntSet large = new IntSet();
+        for (int i = 0; i < 100; i += 3) {
+            large.add(i);
+        }
+
+        assertThat(small.intersection(large)).containsExactly(3, 99);
+        assertThat(large.intersection(small)).containsExactly(3, 99);
+        assertThat(IntSet.of(1, 2, 3, 4).intersection(IntSet.of(2, 4, 6))).containsExactly(2, 4);
+        assertThat(IntSet.of(1, 2).intersectionSize(new IntSet())).isZero();
+    }
+
+    @Test
+    void testSerializesAsJsonArray() throws Exception {
+        User user = new User();
+        user.setFriends(IntSet.of(2, 1));
+
+        String json = objectMapper.writeValueAsString(user.getFriends());
+
+        assertThat(json).isEqualTo("[1,2]");
+        assertThat(objectMapper.readValue("[3,1]", IntSet.class)).containsExactly(1, 3);
+    }
+}
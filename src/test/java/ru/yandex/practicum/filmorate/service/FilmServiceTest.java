@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.index.TrendingFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.interfaces.RecommendationStorage;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmServiceTest {
+    private final UserService userService = mock(UserService.class);
+    private final FilmDbStorage filmStorage = mock(FilmDbStorage.class);
+    private final RecommendationStorage recommendationStorage = mock(RecommendationStorage.class);
+
+    @Test
+    void testCommonFilmsAreOrderedByPopularity() {
+        when(recommendationStorage.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, IntSet.of(1, 2, 3),
+                2, IntSet.of(1, 3, 4),
+                3, IntSet.of(3),
+                4, IntSet.of(2)));
+        when(filmStorage.findFilmsByIds(anyList())).thenAnswer(invocation -> {
+            List<Integer> ids = invocation.getArgument(0);
+            return ids.stream().map(FilmServiceTest::film).toList();
+        });
+        RecommendationIndex recommendationIndex = new RecommendationIndex(recommendationStorage, "jaccard", 10,
+                20, 2, 1000);
+        recommendationIndex.rebuild();
+        FilmService filmService = new FilmService(userService, filmStorage, mock(EventDbStorage.class),
+                mock(TrendingFilmsIndex.class), mock(FilmSearchIndex.class), mock(FilmSuggestIndex.class),
+                recommendationIndex);
+
+        assertThat(filmService.getCommonFilmsWithFriend(1, 2)).extracting(Film::getId).containsExactly(3, 1);
+
+        recommendationIndex.addLike(4, 1);
+        recommendationIndex.addLike(3, 1);
+        assertThat(filmService.getCommonFilmsWithFriend(2, 1)).extracting(Film::getId).containsExactly(1, 3);
+        assertThat(filmService.getCommonFilmsWithFriend(1, 4)).extracting(Film::getId).containsExactly(1, 2);
+
+        when(userService.findUser(99)).thenThrow(new NotFoundException("Пользователь с id 99 не найден."));
+        assertThatThrownBy(() -> filmService.getCommonFilmsWithFriend(1, 99)).isInstanceOf(NotFoundException.class);
+    }
+
+    private static Film film(Integer id) {
+        Film film = new Film();
+        film.setId(id);
+        return film;
+    }
+}
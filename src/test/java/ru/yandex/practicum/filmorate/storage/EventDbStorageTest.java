@@ -0,0 +1,189 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.RecentEventsCache;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+import ru.yandex.practicum.filmorate.storage.mappers.EventRowMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import(EventDbStorageTest.EventDbStorageTestConfig.class)
+class EventDbStorageTest {
+
+    @Autowired
+    private EventDbStorage eventDbStorage;
+
+    @Autowired
+    private EventRetention eventRetention;
+
+    @Autowired
+    private EventArchive eventArchive;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class EventDbStorageTestConfig {
+
+        @Bean
+        public EventLogWriter eventLogWriter(JdbcTemplate jdbcTemplate) {
+            return new EventLogWriter(jdbcTemplate, 2, 100, 60_000, 100, 1000);
+        }
+
+        @Bean
+        public RecentEventsCache recentEventsCache() {
+            return new RecentEventsCache(3, 100);
+        }
+
+        @Bean
+        public EventArchive eventArchive() throws IOException {
+            return new EventArchive(Files.createTempDirectory("event-archive"), true, 100);
+        }
+
+        @Bean
+        public EventRetention eventRetention(JdbcTemplate jdbcTemplate, EventLogWriter eventLogWriter,
+                                             EventArchive eventArchive) {
+            return new EventRetention(jdbcTemplate, new EventRowMapper(), eventLogWriter, eventArchive,
+                    30, 2, 100, 0);
+        }
+
+        @Bean
+        public EventDbStorage eventDbStorage(JdbcTemplate jdbcTemplate, EventLogWriter eventLogWriter,
+                                             RecentEventsCache recentEventsCache, EventArchive eventArchive) {
+            return new EventDbStorage(jdbcTemplate, new EventRowMapper(), eventLogWriter, recentEventsCache,
+                    event -> { }, eventArchive);
+        }
+    }
+
+    @Test
+    void testEventsAreBufferedAndFlushedBeforeFeedIsRead() {
+        Integer userId = createUser();
+
+        Event first = eventDbStorage.addEvent(EventType.FRIEND, Operation.ADD, userId, userId);
+        Event second = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, 1);
+        Event third = eventDbStorage.addEvent(EventType.LIKE, Operation.REMOVE, userId, 1);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event", Integer.class)).isEqualTo(1);
+        assertThat(eventDbStorage.getEventFeed(userId))
+                .extracting(Event::getEventId)
+                .containsExactlyInAnyOrder(first.getEventId(), second.getEventId(), third.getEventId());
+        assertThat(second.getEventId()).isEqualTo(first.getEventId() + 1);
+    }
+
+    @Test
+    void testFeedPagesAreServedFromRecentEventsWhenPossible() {
+        Integer userId = createUser();
+        Event e1 = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, 1);
+        assertThat(eventDbStorage.getFeedBefore(userId, null, 2)).containsExactly(e1);
+
+        Event e2 = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, 2);
+        Event e3 = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, 3);
+        assertThat(eventDbStorage.getFeedBefore(userId, null, 2)).containsExactly(e3, e2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event", Integer.class)).isEqualTo(1);
+
+        Event e4 = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, 4);
+        assertThat(eventDbStorage.getFeedBefore(userId, null, 3)).containsExactly(e4, e3, e2);
+        assertThat(eventDbStorage.getFeedBefore(userId, e3.getEventId(), 2))
+                .extracting(Event::getEventId)
+                .containsExactly(e2.getEventId(), e1.getEventId());
+        assertThat(eventDbStorage.getFeedBefore(userId, e1.getEventId(), 2)).isEmpty();
+    }
+
+    @Test
+    void testRetentionArchivesOldEventsAndFeedReadsAcrossArchive() {
+        Integer userId = createUser();
+        Event[] events = new Event[7];
+        for (int i = 0; i < 5; i++) {
+            events[i] = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, i + 1);
+        }
+
+        assertThat(eventRetention.archiveExpired()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event WHERE user_id = ?", Integer.class,
+                userId)).isEqualTo(2);
+        assertThat(eventDbStorage.getEventFeed(userId)).extracting(Event::getEventId)
+                .containsExactly(ids(events, 0, 5));
+        assertThat(eventDbStorage.getFeedBefore(userId, null, 2)).containsExactly(events[4], events[3]);
+        assertThat(eventDbStorage.getFeedBefore(userId, events[3].getEventId(), 2)).extracting(Event::getEventId)
+                .containsExactly(events[2].getEventId(), events[1].getEventId());
+        assertThat(eventDbStorage.getEventsAfter(userId, events[0].getEventId())).extracting(Event::getEventId)
+                .containsExactly(ids(events, 1, 5));
+
+        events[5] = eventDbStorage.addEvent(EventType.FRIEND, Operation.ADD, userId, userId);
+        events[6] = eventDbStorage.addEvent(EventType.FRIEND, Operation.REMOVE, userId, userId);
+        assertThat(eventRetention.archiveExpired()).isEqualTo(2);
+        assertThat(eventArchive.segmentCount()).isEqualTo(1);
+        List<Event> streamed = new ArrayList<>();
+        eventDbStorage.forEachFeedEvent(userId, streamed::add);
+        assertThat(streamed).extracting(Event::getEventId).containsExactly(ids(events, 0, 7));
+    }
+
+    @Test
+    void testRetentionArchivesEventsOlderThanMaxAge() {
+        Integer userId = createUser();
+        Event[] events = new Event[2];
+        for (int i = 0; i < 2; i++) {
+            events[i] = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, i + 1);
+        }
+        eventDbStorage.flush();
+        jdbcTemplate.update("UPDATE event SET timestamp = 0 WHERE event_id = ?", events[0].getEventId());
+
+        assertThat(eventRetention.archiveExpired()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event WHERE user_id = ?", Integer.class,
+                userId)).isEqualTo(1);
+        assertThat(eventDbStorage.getEventFeed(userId)).extracting(Event::getEventId)
+                .containsExactly(ids(events, 0, 2));
+    }
+
+    @Test
+    void testArchiveReadsSurviveConcurrentCompaction() {
+        Integer userId = createUser();
+        Event[] events = new Event[5];
+        for (int i = 0; i < 5; i++) {
+            events[i] = eventDbStorage.addEvent(EventType.LIKE, Operation.ADD, userId, i + 1);
+        }
+        eventArchive.append(List.of(events[0], events[1]));
+        eventArchive.append(List.of(events[2], events[3], events[4]));
+
+        List<Event> streamed = new ArrayList<>();
+        eventArchive.forEachOfUserAfter(userId, 0, event -> {
+            if (streamed.isEmpty()) {
+                eventArchive.compact(id -> true);
+            }
+            streamed.add(event);
+        });
+        assertThat(streamed).extracting(Event::getEventId).containsExactly(ids(events, 0, 5));
+        assertThat(eventArchive.segmentCount()).isEqualTo(1);
+        List<Event> afterSecond = new ArrayList<>();
+        eventArchive.forEachOfUserAfter(userId, events[1].getEventId(), afterSecond::add);
+        assertThat(afterSecond).extracting(Event::getEventId).containsExactly(ids(events, 2, 5));
+        assertThat(eventDbStorage.getEventFeed(userId)).extracting(Event::getEventId)
+                .containsExactly(ids(events, 0, 5));
+    }
+
+    private static Integer[] ids(Event[] events, int from, int to) {
+        return Arrays.stream(events, from, to).map(Event::getEventId).toArray(Integer[]::new);
+    }
+
+    private Integer createUser() {
+        jdbcTemplate.update("INSERT INTO users(name, login, email, birthday) "
+                            + "VALUES ('User', 'login', 'u@mail.ru', '1990-01-01')");
+        return jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM users", Integer.class);
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventLogWriterTest {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EventLogWriter writer = new EventLogWriter(jdbcTemplate, 2, 100, 60_000, 10, 0);
+
+    @Test
+    void testKeepsFailedEventsQueuedUntilWritten() throws InterruptedException {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new TransientDataAccessResourceException("База недоступна"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new TransientDataAccessResourceException("База недоступна"))
+                .thenThrow(new TransientDataAccessResourceException("База недоступна"))
+                .thenReturn(1);
+        writer.start();
+
+        writer.append(event(1));
+        writer.append(event(2));
+        writer.flush();
+        verify(jdbcTemplate, times(1)).update(anyString(), any(PreparedStatementSetter.class));
+
+        assertThatThrownBy(() -> writer.append(event(3))).isInstanceOf(TransientDataAccessResourceException.class);
+
+        writer.flush();
+        verify(jdbcTemplate, times(4)).update(anyString(), any(PreparedStatementSetter.class));
+
+        writer.append(event(4));
+        verify(jdbcTemplate, times(4)).update(anyString(), any(PreparedStatementSetter.class));
+        writer.stop();
+        verify(jdbcTemplate, times(5)).update(anyString(), any(PreparedStatementSetter.class));
+    }
+
+    private static Event event(int eventId) {
+        return Event.builder()
+                .eventId(eventId)
+                .timestamp(0L)
+                .userId(1)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .entityId(1)
+                .build();
+    }
+}
@@ -8,20 +8,28 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.mappers.DirectorRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.RatingRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
@@ -34,12 +42,21 @@ class FilmDbStorageTest {
     @Autowired
     private UserDbStorage userDbStorage;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private FilmCache filmCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @TestConfiguration
     static class FilmDbStorageTestConfig {
 
         @Bean
-        public FilmRowMapper filmRowMapper() {
-            return new FilmRowMapper();
+        public FilmRowMapper filmRowMapper(ReferenceDataCache referenceDataCache) {
+            return new FilmRowMapper(referenceDataCache);
         }
 
         @Bean
@@ -52,12 +69,25 @@ class FilmDbStorageTest {
             return new DirectorRowMapper();
         }
 
+        @Bean
+        public RatingRowMapper ratingRowMapper() {
+            return new RatingRowMapper();
+        }
+
+        @Bean
+        public ReferenceDataCache referenceDataCache(JdbcTemplate jdbcTemplate,
+                                                     GenreRowMapper genreRowMapper,
+                                                     RatingRowMapper ratingRowMapper,
+                                                     DirectorRowMapper directorRowMapper) {
+            return new ReferenceDataCache(jdbcTemplate, genreRowMapper, ratingRowMapper, directorRowMapper);
+        }
+
         @Bean
         public FilmDbStorage filmDbStorage(JdbcTemplate jdbcTemplate,
                                            FilmRowMapper filmRowMapper,
-                                           GenreRowMapper genreRowMapper,
-                                           DirectorRowMapper directorRowMapper) {
-            return new FilmDbStorage(jdbcTemplate, filmRowMapper, genreRowMapper, directorRowMapper);
+                                           ReferenceDataCache referenceDataCache,
+                                           FilmCache filmCache) {
+            return new FilmDbStorage(jdbcTemplate, filmRowMapper, referenceDataCache, filmCache);
         }
 
         @Bean
@@ -66,8 +96,14 @@ class FilmDbStorageTest {
         }
 
         @Bean
-        public UserDbStorage userDbStorage(JdbcTemplate jdbcTemplate, UserRowMapper userRowMapper) {
-            return new UserDbStorage(jdbcTemplate, userRowMapper);
+        public FilmCache filmCache() {
+            return new FilmCache(100);
+        }
+
+        @Bean
+        public UserDbStorage userDbStorage(JdbcTemplate jdbcTemplate, UserRowMapper userRowMapper,
+                                           FilmCache filmCache) {
+            return new UserDbStorage(jdbcTemplate, userRowMapper, filmCache);
         }
     }
 
@@ -98,6 +134,85 @@ class FilmDbStorageTest {
                 });
     }
 
+    @Test
+    void testFindByIdLoadsAssociationsAndExistsById() {
+        User user1 = new User();
+        user1.setName("User1");
+        user1.setLogin("login1");
+        user1.setEmail("u1@mail.com");
+        user1.setBirthday(LocalDate.of(1990, 1, 1));
+        user1 = userDbStorage.create(user1);
+
+        Genre comedy = new Genre();
+        comedy.setId(1);
+        Genre thriller = new Genre();
+        thriller.setId(4);
+        Film film = new Film();
+        film.setName("Test");
+        film.setDescription("Test Description");
+        film.setReleaseDate(LocalDate.of(1990, 1, 1));
+        film.setDuration(60);
+        Rating rating = new Rating();
+        rating.setId(1);
+        film.setRating(rating);
+        film.setGenres(Set.of(thriller, comedy));
+        film = filmDbStorage.addNewFilm(film);
+        filmDbStorage.addLike(film.getId(), user1.getId());
+
+        Film found = filmDbStorage.findById(film.getId()).orElseThrow();
+
+        assertThat(found.getRating().getName()).isEqualTo("G");
+        assertThat(found.getRating()).isSameAs(referenceDataCache.findRating(1).orElseThrow());
+        assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(1, 4);
+        assertThat(found.getGenres().iterator().next()).isSameAs(referenceDataCache.findGenre(1).orElseThrow());
+        assertThatThrownBy(() -> found.getRating().setName("R")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(found.getGenres()).extracting(Genre::getName).containsExactly("Комедия", "Триллер");
+        assertThat(found.getLikes()).containsExactly(user1.getId());
+        assertThat(found.getDirectors()).isEmpty();
+        assertThat(filmDbStorage.existsById(film.getId())).isTrue();
+        assertThat(filmDbStorage.existsById(film.getId() + 1)).isFalse();
+        assertThat(filmDbStorage.findById(film.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    void testFindByIdIsCachedUntilFilmChanges() {
+        User user = new User();
+        user.setName("User1");
+        user.setLogin("login1");
+        user.setEmail("u1@mail.com");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        user = userDbStorage.create(user);
+        Film film = new Film();
+        film.setName("Test");
+        film.setDescription("Test Description");
+        film.setReleaseDate(LocalDate.of(1990, 1, 1));
+        film.setDuration(60);
+        Rating rating = new Rating();
+        rating.setId(1);
+        film.setRating(rating);
+        film = filmDbStorage.addNewFilm(film);
+
+        Film cached = filmDbStorage.findById(film.getId()).orElseThrow();
+        long hits = filmCache.stats().hitCount();
+
+        assertThat(filmDbStorage.findById(film.getId())).containsSame(cached);
+        assertThat(filmCache.stats().hitCount()).isEqualTo(hits + 1);
+
+        filmDbStorage.addLike(film.getId(), user.getId());
+        assertThat(filmDbStorage.findById(film.getId()).orElseThrow().getLikes()).containsExactly(user.getId());
+
+        film.setName("Updated");
+        filmDbStorage.updateFilm(film);
+        assertThat(filmDbStorage.findById(film.getId()).orElseThrow().getName()).isEqualTo("Updated");
+
+        assertThat(userDbStorage.deleteUserById(user.getId())).containsExactly(film.getId());
+        assertThat(filmDbStorage.findById(film.getId()).orElseThrow().getLikes()).isEmpty();
+
+        filmDbStorage.deleteFilmById(film.getId());
+        assertThat(filmDbStorage.findById(film.getId())).isEmpty();
+        assertThat(filmDbStorage.existsById(film.getId())).isFalse();
+    }
+
     @Test
     void testUpdateFilm() {
         Film film = new Film();
@@ -152,6 +267,90 @@ class FilmDbStorageTest {
                 .hasSize(2)
                 .first()
                 .hasFieldOrPropertyWithValue("id", film.getId());
+
+        List<Film> streamed = new ArrayList<>();
+        filmDbStorage.forEachFilm(streamed::add);
+
+        assertThat(streamed).containsExactlyInAnyOrderElementsOf(films);
+    }
+
+    @Test
+    void testKeysetPagesOfFilmsAndDirectorFilms() {
+        User user = new User();
+        user.setName("User1");
+        user.setLogin("login1");
+        user.setEmail("u1@mail.com");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        user = userDbStorage.create(user);
+        jdbcTemplate.update("INSERT INTO director(name) VALUES ('Director')");
+        Director director = new Director();
+        director.setId(jdbcTemplate.queryForObject("SELECT MAX(director_id) FROM director", Integer.class));
+        Rating rating = new Rating();
+        rating.setId(1);
+        Film[] films = new Film[3];
+        for (int i = 0; i < films.length; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000 - i, 1, 1));
+            film.setDuration(60);
+            film.setRating(rating);
+            film.setDirectors(Set.of(director));
+            films[i] = filmDbStorage.addNewFilm(film);
+        }
+        filmDbStorage.addLike(films[1].getId(), user.getId());
+
+        assertThat(filmDbStorage.getFilmsAfter(null, 2, FilmField.ALL)).extracting(Film::getId)
+                .containsExactly(films[0].getId(), films[1].getId());
+        assertThat(filmDbStorage.getFilmsAfter(films[1].getId(), 2, FilmField.ALL)).extracting(Film::getId)
+                .containsExactly(films[2].getId());
+        assertThat(filmDbStorage.getFilmsByDirectorSortedByLikesAfter(director.getId(), null, null, 2,
+                FilmField.ALL))
+                .extracting(Film::getId).containsExactly(films[1].getId(), films[0].getId());
+        assertThat(filmDbStorage.getFilmsByDirectorSortedByLikesAfter(director.getId(), 0, films[0].getId(), 2,
+                FilmField.ALL))
+                .extracting(Film::getId).containsExactly(films[2].getId());
+        assertThat(filmDbStorage.getFilmsByDirectorSortedByYearsAfter(director.getId(), null, null, 2,
+                FilmField.ALL))
+                .extracting(Film::getId).containsExactly(films[2].getId(), films[1].getId());
+        assertThat(filmDbStorage.getFilmsByDirectorSortedByYearsAfter(director.getId(),
+                films[1].getReleaseDate(), films[1].getId(), 2, FilmField.ALL))
+                .extracting(Film::getId).containsExactly(films[0].getId());
+    }
+
+    @Test
+    void testProjectionSkipsAssociationsThatAreNotRequested() {
+        User user = new User();
+        user.setName("User");
+        user.setLogin("login");
+        user.setEmail("user@mail.com");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        user = userDbStorage.create(user);
+        Genre comedy = new Genre();
+        comedy.setId(1);
+        Rating rating = new Rating();
+        rating.setId(1);
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(60);
+        film.setRating(rating);
+        film.setGenres(Set.of(comedy));
+        film = filmDbStorage.addNewFilm(film);
+        filmDbStorage.addLike(film.getId(), user.getId());
+
+        Film projected = filmDbStorage.getFilmsAfter(null, 10,
+                Set.of(FilmField.ID, FilmField.NAME, FilmField.LIKE_COUNT)).getFirst();
+        assertThat(projected.getLikeCount()).isEqualTo(1);
+        assertThat(projected.getLikes()).isEmpty();
+        assertThat(projected.getGenres()).isEmpty();
+
+        Film withGenres = filmDbStorage.findFilmsByIds(List.of(film.getId()),
+                Set.of(FilmField.ID, FilmField.GENRES)).getFirst();
+        assertThat(withGenres.getGenres()).extracting(Genre::getId).containsExactly(1);
+        assertThat(withGenres.getLikes()).isEmpty();
+        assertThat(withGenres.getLikeCount()).isEqualTo(1);
     }
 
     @Test
@@ -219,7 +418,7 @@ class FilmDbStorageTest {
         filmDbStorage.addLike(film1.getId(), user2.getId());
         filmDbStorage.addLike(film2.getId(), user1.getId());
 
-        List<Film> popular = filmDbStorage.findMostPopularFilms();
+        List<Film> popular = filmDbStorage.findMostPopularFilms(10, null, null, FilmField.ALL);
 
         assertThat(popular)
                 .hasSizeGreaterThanOrEqualTo(2)
@@ -228,7 +427,7 @@ class FilmDbStorageTest {
     }
 
     @Test
-    void getCommonFilmsWithFriend() {
+    void testFindMostPopularFilmsWithFiltersAndLimit() {
         User user1 = new User();
         user1.setName("User1");
         user1.setLogin("login1");
@@ -243,49 +442,143 @@ class FilmDbStorageTest {
         user2.setBirthday(LocalDate.of(1991, 2, 2));
         user2 = userDbStorage.create(user2);
 
+        Genre comedy = new Genre();
+        comedy.setId(1);
+        Rating rating = new Rating();
+        rating.setId(1);
+
         Film film1 = new Film();
         film1.setName("Film 1");
         film1.setDescription("Description 1");
         film1.setReleaseDate(LocalDate.of(2000, 1, 1));
         film1.setDuration(100);
-        Rating rating1 = new Rating();
-        rating1.setId(1);
-        film1.setRating(rating1);
+        film1.setRating(rating);
+        film1.setGenres(Set.of(comedy));
         film1 = filmDbStorage.addNewFilm(film1);
 
         Film film2 = new Film();
         film2.setName("Film 2");
         film2.setDescription("Description 2");
-        film2.setReleaseDate(LocalDate.of(2001, 2, 2));
+        film2.setReleaseDate(LocalDate.of(2000, 12, 31));
         film2.setDuration(120);
-        Rating rating2 = new Rating();
-        rating2.setId(1);
-        film2.setRating(rating2);
+        film2.setRating(rating);
         film2 = filmDbStorage.addNewFilm(film2);
 
         Film film3 = new Film();
         film3.setName("Film 3");
         film3.setDescription("Description 3");
-        film3.setReleaseDate(LocalDate.of(2002, 3, 3));
-        film3.setDuration(100);
-        Rating rating3 = new Rating();
-        rating3.setId(1);
-        film3.setRating(rating3);
+        film3.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film3.setDuration(90);
+        film3.setRating(rating);
+        film3.setGenres(Set.of(comedy));
         film3 = filmDbStorage.addNewFilm(film3);
 
-        filmDbStorage.addLike(film1.getId(), user1.getId());
-        filmDbStorage.addLike(film1.getId(), user2.getId());
         filmDbStorage.addLike(film2.getId(), user1.getId());
-        filmDbStorage.addLike(film3.getId(), user2.getId());
+        filmDbStorage.addLike(film2.getId(), user2.getId());
+        filmDbStorage.addLike(film3.getId(), user1.getId());
 
-        List<Film> popular = filmDbStorage.getCommonFilmsWithFriend(user1.getId(), user2.getId());
+        assertThat(filmDbStorage.findMostPopularFilms(2, null, null, FilmField.ALL))
+                .extracting(Film::getId)
+                .containsExactly(film2.getId(), film3.getId());
+        assertThat(filmDbStorage.findMostPopularFilms(10, 1, null, FilmField.ALL))
+                .extracting(Film::getId)
+                .containsExactly(film3.getId(), film1.getId());
+        assertThat(filmDbStorage.findMostPopularFilms(10, null, 2000, FilmField.ALL))
+                .extracting(Film::getId)
+                .containsExactly(film2.getId(), film1.getId());
+        assertThat(filmDbStorage.findMostPopularFilms(10, 1, 2000, FilmField.ALL))
+                .extracting(Film::getId)
+                .containsExactly(film1.getId());
+    }
 
-        assertThat(popular)
-                .hasSizeGreaterThanOrEqualTo(1)
+    @Test
+    void testLikeCountFollowsAddAndDeleteLike() {
+        User user1 = new User();
+        user1.setName("User1");
+        user1.setLogin("login1");
+        user1.setEmail("u1@mail.com");
+        user1.setBirthday(LocalDate.of(1990, 1, 1));
+        user1 = userDbStorage.create(user1);
+
+        Film film1 = new Film();
+        film1.setName("Film 1");
+        film1.setDescription("Description 1");
+        film1.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film1.setDuration(100);
+        Rating rating1 = new Rating();
+        rating1.setId(1);
+        film1.setRating(rating1);
+        film1 = filmDbStorage.addNewFilm(film1);
+
+        Film film2 = new Film();
+        film2.setName("Film 2");
+        film2.setDescription("Description 2");
+        film2.setReleaseDate(LocalDate.of(2001, 2, 2));
+        film2.setDuration(120);
+        film2.setRating(rating1);
+        film2 = filmDbStorage.addNewFilm(film2);
+
+        filmDbStorage.addLike(film2.getId(), user1.getId());
+        filmDbStorage.addLike(film2.getId(), user1.getId());
+        filmDbStorage.addLike(film1.getId(), user1.getId());
+        filmDbStorage.deleteLike(film2.getId(), user1.getId());
+        filmDbStorage.deleteLike(film2.getId(), user1.getId());
+
+        assertThat(filmDbStorage.findMostPopularFilms(10, null, null, FilmField.ALL))
                 .extracting(Film::getId)
-                .containsExactly(film1.getId())
-                .doesNotContain(film2.getId())
-                .doesNotContain(film3.getId());
+                .containsExactly(film1.getId(), film2.getId());
+        assertThat(filmDbStorage.getLikesByFilmId(film2.getId())).isEmpty();
+    }
+
+    @Test
+    void testSearchByTitleLoadsGenresAndLikesOfFoundFilms() {
+        User user1 = new User();
+        user1.setName("User1");
+        user1.setLogin("login1");
+        user1.setEmail("u1@mail.com");
+        user1.setBirthday(LocalDate.of(1990, 1, 1));
+        user1 = userDbStorage.create(user1);
+
+        Genre comedy = new Genre();
+        comedy.setId(1);
+        Genre drama = new Genre();
+        drama.setId(2);
+        Rating rating = new Rating();
+        rating.setId(1);
+
+        Film film1 = new Film();
+        film1.setName("Matrix");
+        film1.setDescription("Description 1");
+        film1.setReleaseDate(LocalDate.of(1999, 3, 31));
+        film1.setDuration(136);
+        film1.setRating(rating);
+        film1.setGenres(Set.of(drama, comedy));
+        Integer matrixId = filmDbStorage.addNewFilm(film1).getId();
+
+        Film film2 = new Film();
+        film2.setName("Other");
+        film2.setDescription("Description 2");
+        film2.setReleaseDate(LocalDate.of(2001, 2, 2));
+        film2.setDuration(120);
+        film2.setRating(rating);
+        film2.setGenres(Set.of(drama));
+        film2 = filmDbStorage.addNewFilm(film2);
+
+        Integer userId = user1.getId();
+        filmDbStorage.addLike(matrixId, userId);
+        filmDbStorage.addLike(film2.getId(), userId);
+
+        List<Film> found = filmDbStorage.searchByTitle("matr");
+
+        assertThat(found)
+                .singleElement()
+                .satisfies(f -> {
+                    assertThat(f.getId()).isEqualTo(matrixId);
+                    assertThat(f.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+                    assertThat(f.getGenres()).extracting(Genre::getName).doesNotContainNull();
+                    assertThat(f.getLikes()).containsExactly(userId);
+                    assertThat(f.getDirectors()).isEmpty();
+                });
     }
 
     @Test
@@ -8,10 +8,12 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,8 +36,14 @@ class UserDbStorageTest {
         }
 
         @Bean
-        public UserDbStorage userDbStorage(JdbcTemplate jdbcTemplate, UserRowMapper userRowMapper) {
-            return new UserDbStorage(jdbcTemplate, userRowMapper);
+        public FilmCache filmCache() {
+            return new FilmCache(100);
+        }
+
+        @Bean
+        public UserDbStorage userDbStorage(JdbcTemplate jdbcTemplate, UserRowMapper userRowMapper,
+                                           FilmCache filmCache) {
+            return new UserDbStorage(jdbcTemplate, userRowMapper, filmCache);
         }
     }
 
@@ -62,6 +70,24 @@ class UserDbStorageTest {
                 });
     }
 
+    @Test
+    void testGetUsersAfterSeeksById() {
+        User[] users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setLogin("login" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            users[i] = userDbStorage.create(user);
+        }
+
+        assertThat(userDbStorage.getUsersAfter(null, 2)).extracting(User::getId)
+                .containsExactly(users[0].getId(), users[1].getId());
+        assertThat(userDbStorage.getUsersAfter(users[1].getId(), 2)).extracting(User::getId)
+                .containsExactly(users[2].getId());
+    }
+
     @Test
     void testUpdateUser() {
         User user = new User();
@@ -100,45 +126,11 @@ class UserDbStorageTest {
         user2.setBirthday(LocalDate.of(1990, 2, 2));
         user2 = userDbStorage.create(user2);
 
-        userDbStorage.addFriend(user1.getId(), user2.getId());
+        assertThat(userDbStorage.addFriend(user1.getId(), user2.getId())).isTrue();
+        assertThat(userDbStorage.addFriend(user1.getId(), user2.getId())).isFalse();
 
-        List<User> friends = userDbStorage.findAllFriends(user1.getId());
-
-        assertThat(friends)
-                .hasSize(1)
-                .first()
-                .hasFieldOrPropertyWithValue("id", user2.getId());
-    }
-
-    @Test
-    void testFindCommonFriends() {
-        User user1 = new User();
-        user1.setName("User1");
-        user1.setLogin("login1");
-        user1.setEmail("u1@mail.com");
-        user1.setBirthday(LocalDate.of(1990, 1, 1));
-        user1 = userDbStorage.create(user1);
-        User user2 = new User();
-        user2.setName("User2");
-        user2.setLogin("login2");
-        user2.setEmail("u2@mail.com");
-        user2.setBirthday(LocalDate.of(1990, 2, 2));
-        user2 = userDbStorage.create(user2);
-        User common = new User();
-        common.setName("Common");
-        common.setLogin("common");
-        common.setEmail("c@mail.com");
-        common.setBirthday(LocalDate.of(1992, 3, 3));
-        common = userDbStorage.create(common);
-        userDbStorage.addFriend(user1.getId(), common.getId());
-        userDbStorage.addFriend(user2.getId(), common.getId());
-
-        List<User> commonFriends = userDbStorage.findCommonFriends(user1.getId(), user2.getId());
-
-        assertThat(commonFriends)
-                .hasSize(1)
-                .first()
-                .hasFieldOrPropertyWithValue("id", common.getId());
+        assertThat(friendsOf(user1.getId())).containsExactly(user2.getId());
+        assertThat(friendsOf(user2.getId())).isEmpty();
     }
 
     @Test
@@ -165,7 +157,7 @@ class UserDbStorageTest {
         user3 = userDbStorage.create(user3);
 
         userDbStorage.addFriend(user1.getId(), user3.getId());
-        List<User> friend1 = userDbStorage.findAllFriends(user1.getId());
+        List<Integer> friend1 = friendsOf(user1.getId());
         List<User> users = userDbStorage.getAllUsers();
 
         assertThat(users)
@@ -175,14 +167,11 @@ class UserDbStorageTest {
                 .contains(user2.getId())
                 .contains(user3.getId());
 
-        assertThat(friend1)
-                .hasSize(1)
-                .extracting(User::getId)
-                .contains(user3.getId());
+        assertThat(friend1).containsExactly(user3.getId());
 
         userDbStorage.deleteUserById(user3.getId());
         users = userDbStorage.getAllUsers();
-        friend1 = userDbStorage.findAllFriends(user1.getId());
+        friend1 = friendsOf(user1.getId());
 
 
         assertThat(users)
@@ -192,9 +181,16 @@ class UserDbStorageTest {
                 .contains(user2.getId())
                 .doesNotContain(user3.getId());
 
-        assertThat(friend1)
-                .hasSize(0)
-                .extracting(User::getId)
-                .doesNotContain(user3.getId());
+        assertThat(friend1).isEmpty();
+    }
+
+    private List<Integer> friendsOf(Integer userId) {
+        List<Integer> friendIds = new ArrayList<>();
+        userDbStorage.forEachFriendship((id, friendId) -> {
+            if (id.equals(userId)) {
+                friendIds.add(friendId);
+            }
+        });
+        return friendIds;
     }
 }